@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.Score;
+import ru.yandex.practicum.filmorate.model.Suggestions;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+
+    private static final int IMPORT_SIZE = 1000;
+
+    @Benchmark
+    public Collection<Film> findPopular(FilmorateState state) {
+        return state.getFilmService().findPopular(10, Optional.empty(), Optional.empty());
+    }
+
+    @Benchmark
+    @Group("popularUnderScores")
+    @GroupThreads(6)
+    public Collection<Film> findPopularUnderScores(FilmorateState state) {
+        return state.getFilmService().findPopular(10, Optional.empty(), Optional.empty());
+    }
+
+    @Benchmark
+    @Group("popularUnderScores")
+    @GroupThreads(2)
+    public void saveScoreUnderPopular(FilmorateState state, RandomIds ids) {
+        state.getFilmService().saveScore(ids.nextScore(state));
+    }
+
+    @Benchmark
+    public Collection<Film> findPopularByGenreAndYear(FilmorateState state) {
+        return state.getFilmService().findPopular(10, Optional.of(1), Optional.of(2000));
+    }
+
+    @Benchmark
+    @Measurement(iterations = 3, time = 5)
+    public Collection<Film> findAll(FilmorateState state) {
+        return state.getFilmService().findAll();
+    }
+
+    @Benchmark
+    public Collection<Film> searchByTitle(FilmorateState state) {
+        return state.getFilmService().searchByFilmAndDirector("m 123", "title");
+    }
+
+    @Benchmark
+    public Collection<Film> searchByFilmAndDirector(FilmorateState state) {
+        return state.getFilmService().searchByFilmAndDirector("r 42", "title,director");
+    }
+
+    @Benchmark
+    public Page<Film> searchShortQuery(FilmorateState state) {
+        return state.getFilmService().searchByFilmAndDirector("99", "title", Optional.of(20), Optional.empty());
+    }
+
+    @Benchmark
+    public Suggestions suggest(FilmorateState state, RandomIds ids) {
+        return state.getFilmService().suggest("film " + ids.nextFilmId(state) / 10, Optional.empty());
+    }
+
+    @Benchmark
+    public Suggestions suggestShortPrefix(FilmorateState state, RandomIds ids) {
+        return state.getFilmService().suggest("film " + ids.nextFilmId(state) % 10, Optional.empty());
+    }
+
+    @Benchmark
+    public Film saveNew(FilmorateState state, RandomIds ids) {
+        return state.getFilmService().saveNew(newFilm(ids.nextFilmNumber()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IMPORT_SIZE)
+    public List<ImportResult> saveAll(FilmorateState state, RandomIds ids) {
+        List<Film> films = new ArrayList<>(IMPORT_SIZE);
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            films.add(newFilm(ids.nextFilmNumber()));
+        }
+        return state.getFilmService().saveAll(films.iterator());
+    }
+
+    @Benchmark
+    public void checkExists(FilmorateState state, RandomIds ids) {
+        state.getFilmService().checkExists(ids.nextFilmId(state));
+    }
+
+    @Benchmark
+    public void saveScore(FilmorateState state, RandomIds ids) {
+        state.getFilmService().saveScore(ids.nextScore(state));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IMPORT_SIZE)
+    public List<ImportResult> saveScores(FilmorateState state, RandomIds ids) {
+        List<Score> scores = new ArrayList<>(IMPORT_SIZE);
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            scores.add(ids.nextScore(state));
+        }
+        return state.getFilmService().saveScores(scores.iterator());
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendation(FilmorateState state, RandomIds ids) {
+        return state.getFilmService().getRecommendation(ids.nextUserId(state));
+    }
+
+    private static Film newFilm(int i) {
+        return new Film("imported film " + i, "description", LocalDate.of(2000, 1, 1).plusDays(i), 90L, null,
+                List.of(new Genre(1 + i % 6, null)), new Mpa(1 + i % 5, null), List.of(new Director(1, null)), null);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.Getter;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.service.DirectorsService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.RecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.index.TimelineIndex;
+
+import java.util.UUID;
+
+@State(Scope.Benchmark)
+@Getter
+public class FilmorateState {
+
+    @Param({"10000", "100000", "1000000"})
+    private int scores;
+
+    @Param({"0"})
+    private int films;
+
+    @Param({"true"})
+    private boolean popularIndex;
+
+    @Param({"true"})
+    private boolean recommendationEngine;
+
+    @Param({"true"})
+    private boolean searchIndex;
+
+    @Param({"true"})
+    private boolean suggestIndex;
+
+    @Param({"true"})
+    private boolean feedQueue;
+
+    @Param({"true"})
+    private boolean timeline;
+
+    @Param({"true"})
+    private boolean friendshipGraph;
+
+    @Param({"true"})
+    private boolean idBitmaps;
+
+    @Param({"true"})
+    private boolean storageMetrics;
+
+    @Param({"default"})
+    private String profile;
+
+    @Param({"42"})
+    private long seed;
+
+    private ConfigurableApplicationContext context;
+    private GeneratorSettings settings;
+    private FilmService filmService;
+    private UserService userService;
+    private ReviewService reviewService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.sql.init.mode=always",
+                        "--spring.profiles.active=" + profile,
+                        "--logging.level.root=warn",
+                        "--filmorate.popular-index.enabled=" + popularIndex,
+                        "--filmorate.recommendations.enabled=" + recommendationEngine,
+                        "--filmorate.search-index.enabled=" + searchIndex,
+                        "--filmorate.suggest-index.enabled=" + suggestIndex,
+                        "--filmorate.feed-queue.enabled=" + feedQueue,
+                        "--filmorate.timeline.enabled=" + timeline,
+                        "--filmorate.friendship-graph.enabled=" + friendshipGraph,
+                        "--filmorate.id-bitmaps.enabled=" + idBitmaps,
+                        "--filmorate.metrics.storage.enabled=" + storageMetrics);
+        checkSetting("filmorate.popular-index.enabled", popularIndex,
+                context.getBean(PopularFilmsIndex.class).isEnabled());
+        checkSetting("filmorate.recommendations.enabled", recommendationEngine,
+                context.getBean(RecommendationEngine.class).isEnabled());
+        checkSetting("filmorate.search-index.enabled", searchIndex, context.getBean(FilmSearchIndex.class).isEnabled());
+        checkSetting("filmorate.suggest-index.enabled", suggestIndex,
+                context.getBean(FilmSuggestIndex.class).isEnabled());
+        checkSetting("filmorate.timeline.enabled", timeline, context.getBean(TimelineIndex.class).isEnabled());
+        checkSetting("filmorate.friendship-graph.enabled", friendshipGraph,
+                context.getBean(FriendshipGraph.class).isEnabled());
+        settings = new GeneratorSettings();
+        settings.setSeed(seed);
+        settings.setUsers(Math.max(100, scores / settings.getScoresPerUser()));
+        settings.setFilms(films > 0 ? films : Math.max(50, scores / 50));
+        settings.setDirectors(Math.max(1, settings.getFilms() / 20));
+        settings.setReviews(settings.getUsers() / 2);
+        new DataGenerator(context.getBean(JdbcTemplate.class)).generate(settings);
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+        reviewService = context.getBean(ReviewService.class);
+        filmService.rebuildPopularFilmsIndex();
+        filmService.rebuildRecommendationEngine();
+        filmService.rebuildFilmSearchIndex();
+        filmService.rebuildFilmSuggestIndex();
+        userService.rebuildTimelineIndex();
+        userService.rebuildFriendshipGraph();
+        userService.rebuildUserIds();
+        filmService.rebuildFilmIds();
+        reviewService.rebuildReviewIds();
+        context.getBean(DirectorsService.class).rebuildDirectorIds();
+    }
+
+    private void checkSetting(String name, boolean expected, boolean actual) {
+        if (expected != actual) {
+            context.close();
+            throw new IllegalStateException("Настройка " + name + " не применилась: ожидалось " + expected + ".");
+        }
+    }
+
+        @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
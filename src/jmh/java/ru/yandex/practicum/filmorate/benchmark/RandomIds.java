@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Score;
+
+import java.util.SplittableRandom;
+
+@State(Scope.Thread)
+public class RandomIds {
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    private int filmNumber;
+
+    public int nextUserId(FilmorateState state) {
+        return 1 + random.nextInt(state.getSettings().getUsers());
+    }
+
+    public int nextFilmId(FilmorateState state) {
+        return 1 + random.nextInt(state.getSettings().getFilms());
+    }
+
+    public Score nextScore(FilmorateState state) {
+        return new Score(nextFilmId(state), nextUserId(state), 1 + random.nextInt(10));
+    }
+
+    public int nextFilmNumber() {
+        return ++filmNumber;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Benchmark
+    public Collection<User> findCommonFriends(FilmorateState state, RandomIds ids) {
+        return state.getUserService().findCommonFriends(ids.nextUserId(state), ids.nextUserId(state));
+    }
+
+    @Benchmark
+    public Collection<User> findFriendSuggestions(FilmorateState state, RandomIds ids) {
+        return state.getUserService().findFriendSuggestions(ids.nextUserId(state), Optional.of(10));
+    }
+
+    @Benchmark
+    public Page<Feed> findTimeline(FilmorateState state, RandomIds ids) {
+        return state.getUserService().findTimeline(ids.nextUserId(state), Optional.of(20), Optional.empty());
+    }
+}
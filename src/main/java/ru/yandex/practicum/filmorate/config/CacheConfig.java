@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String GENRES = "genres";
+
+    public static final String MPA = "mpa";
+
+    public static final String DIRECTORS = "directors";
+
+    public static final String FRIENDSHIP_STATUSES = "friendshipStatuses";
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> referenceCachesCustomizer(
+            @Value("${filmorate.cache.directors.maximum-size:1000}") long directorsMaximumSize) {
+        return cacheManager -> {
+            cacheManager.setCaffeine(Caffeine.newBuilder().recordStats());
+            cacheManager.setCacheNames(List.of(GENRES, MPA, FRIENDSHIP_STATUSES));
+            cacheManager.registerCustomCache(DIRECTORS, Caffeine.newBuilder()
+                    .maximumSize(directorsMaximumSize)
+                    .recordStats()
+                    .build());
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+
+@Configuration
+@ConditionalOnProperty(name = "filmorate.generator.enabled", havingValue = "true")
+public class GeneratorConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "filmorate.generator")
+    public GeneratorSettings generatorSettings() {
+        return new GeneratorSettings();
+    }
+
+    @Bean
+    public CommandLineRunner dataGeneratorRunner(JdbcTemplate jdbcTemplate, GeneratorSettings generatorSettings,
+                                                 IndexesLoader indexesLoader) {
+        return args -> {
+            new DataGenerator(jdbcTemplate).generate(generatorSettings);
+            indexesLoader.load();
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.DirectorsService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmaps;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IndexesLoader implements SmartInitializingSingleton {
+
+    private final IdBitmaps idBitmaps;
+    private final UserService userService;
+    private final FilmService filmService;
+    private final ReviewService reviewService;
+    private final DirectorsService directorsService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    public void load() {
+        if (idBitmaps.isEnabled()) {
+            userService.rebuildUserIds();
+            filmService.rebuildFilmIds();
+            reviewService.rebuildReviewIds();
+            directorsService.rebuildDirectorIds();
+            log.info("Битовые карты идентификаторов загружены.");
+        }
+        userService.rebuildFriendshipGraph();
+        userService.rebuildTimelineIndex();
+        filmService.rebuildPopularFilmsIndex();
+        filmService.rebuildRecommendationEngine();
+        filmService.rebuildFilmSearchIndex();
+        filmService.rebuildFilmSuggestIndex();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+@ConditionalOnProperty(name = "filmorate.metrics.storage.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+
+    public static final String CALLS = "filmorate.storage.calls";
+
+    public static final String ROWS = "filmorate.storage.rows";
+
+    public static final String ERRORS = "filmorate.storage.errors";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Class<?>, Map<String, StorageMeters>> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.dao.*.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> storageClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        StorageMeters storageMeters = meters
+                .computeIfAbsent(storageClass, storage -> new ConcurrentHashMap<>())
+                .computeIfAbsent(joinPoint.getSignature().getName(), method -> new StorageMeters(storageClass, method));
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            storageMeters.calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            int rows = countRows(result);
+            if (rows >= 0) {
+                storageMeters.rows.record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            storageMeters.calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meterRegistry.counter(ERRORS, "storage", storageMeters.storage, "method", storageMeters.method,
+                    "exception", e.getClass().getSimpleName()).increment();
+            throw e;
+        }
+    }
+
+    private static int countRows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        } else if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        } else if (result != null && result.getClass().isArray()) {
+            return Array.getLength(result);
+        }
+        return -1;
+    }
+
+    private class StorageMeters {
+        private final String storage;
+        private final String method;
+        private final Timer calls;
+        private final DistributionSummary rows;
+
+        private StorageMeters(Class<?> storageClass, String method) {
+            this.storage = storageClass.getSimpleName();
+            this.method = method;
+            this.calls = Timer.builder(CALLS)
+                    .tag("storage", storage)
+                    .tag("method", method)
+                    .register(meterRegistry);
+            this.rows = DistributionSummary.builder(ROWS)
+                    .baseUnit("rows")
+                    .tag("storage", storage)
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+    }
+}
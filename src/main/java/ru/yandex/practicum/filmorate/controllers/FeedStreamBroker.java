@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.FeedsSavedEvent;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@Slf4j
+public class FeedStreamBroker {
+
+    private static final String EVENT_NAME = "feed";
+
+    private final UserService userService;
+    private final int bufferSize;
+    private final int replayBatchSize;
+    private final long timeout;
+    private final long sendTimeout;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscribersCount = new AtomicInteger();
+
+    public FeedStreamBroker(UserService userService,
+                            @Value("${filmorate.feed-stream.buffer-size:256}") int bufferSize,
+                            @Value("${filmorate.feed-stream.replay-batch-size:500}") int replayBatchSize,
+                            @Value("${filmorate.feed-stream.threads:4}") int threads,
+                            @Value("${filmorate.feed-stream.timeout-ms:0}") long timeout,
+                            @Value("${filmorate.feed-stream.send-timeout-ms:10000}") long sendTimeout) {
+        this.userService = userService;
+        this.bufferSize = bufferSize;
+        this.replayBatchSize = replayBatchSize;
+        this.timeout = timeout;
+        this.sendTimeout = sendTimeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "feed-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int getSubscribersCount() {
+        return subscribersCount.get();
+    }
+
+    public SseEmitter subscribe(int userId, Optional<Integer> lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        subscribe(userId, lastEventId, emitter);
+        return emitter;
+    }
+
+    public void subscribe(int userId, Optional<Integer> lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(userId, lastEventId.orElse(-1), emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            Set<Subscriber> result = userSubscribers == null ? ConcurrentHashMap.newKeySet() : userSubscribers;
+            result.add(subscriber);
+            return result;
+        });
+        subscribersCount.incrementAndGet();
+        log.debug("Подписка на ленту пользователя {}, последнее событие {}.", userId, lastEventId.orElse(null));
+        schedule(subscriber);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedsSaved(FeedsSavedEvent event) {
+        publish(event.getFeeds());
+    }
+
+    public void publish(List<Feed> feeds) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (Feed feed : feeds) {
+            for (Subscriber subscriber : subscribers.getOrDefault(feed.getUserId(), Set.of())) {
+                if (subscriber.offer(feed)) {
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.feed-stream.heartbeat-ms:30000}",
+            initialDelayString = "${filmorate.feed-stream.heartbeat-ms:30000}")
+    public void heartbeat() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            if (subscriber.requestHeartbeat()) {
+                schedule(subscriber);
+            }
+        }));
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.feed-stream.send-timeout-ms:10000}",
+            initialDelayString = "${filmorate.feed-stream.send-timeout-ms:10000}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            if (subscriber.interruptStalledSend(now)) {
+                log.debug("Отправка ленты пользователя {} заняла больше {} мс, соединение закрыто.",
+                        subscriber.userId, sendTimeout);
+                unsubscribe(subscriber);
+                subscriber.emitter.completeWithError(new IOException("Превышено время отправки ленты."));
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber ->
+                subscriber.emitter.complete()));
+        executor.shutdownNow();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.markScheduled()) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            if (!subscriber.replayed) {
+                replay(subscriber);
+            }
+            while (true) {
+                Batch batch = subscriber.poll();
+                if (batch == null) {
+                    subscriber.replayedIds.clear();
+                    return;
+                }
+                if (batch.overflowed) {
+                    log.debug("Буфер подписчика ленты пользователя {} переполнен, соединение закрыто.",
+                            subscriber.userId);
+                    unsubscribe(subscriber);
+                    subscriber.emitter.complete();
+                    return;
+                }
+                for (Feed feed : batch.feeds) {
+                    if (!subscriber.replayedIds.remove(feed.getEventId())) {
+                        send(subscriber, feed);
+                    }
+                }
+                if (batch.heartbeat && batch.feeds.isEmpty()) {
+                    send(subscriber, SseEmitter.event().comment(""));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Подписчик ленты пользователя {} отключен: {}", subscriber.userId, e.getMessage());
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } catch (RuntimeException e) {
+            log.error("Ошибка при отправке ленты пользователя {}: {}", subscriber.userId, e.getMessage());
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void replay(Subscriber subscriber) throws IOException {
+        if (subscriber.lastEventId >= 0) {
+            List<Feed> feeds;
+            do {
+                feeds = userService.findFeedAfterEventId(subscriber.userId, replayBatchSize, subscriber.lastEventId);
+                for (Feed feed : feeds) {
+                    send(subscriber, feed);
+                    subscriber.replayedIds.add(feed.getEventId());
+                }
+            } while (feeds.size() == replayBatchSize);
+        }
+        subscriber.replayed = true;
+    }
+
+    private void send(Subscriber subscriber, Feed feed) throws IOException {
+        send(subscriber, SseEmitter.event()
+                .id(String.valueOf(feed.getEventId()))
+                .name(EVENT_NAME)
+                .data(feed));
+        subscriber.lastEventId = feed.getEventId();
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.startSend();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.finishSend();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+        subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+            if (userSubscribers.remove(subscriber)) {
+                subscribersCount.decrementAndGet();
+            }
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    private static class Batch {
+        private final List<Feed> feeds;
+        private final boolean overflowed;
+        private final boolean heartbeat;
+
+        private Batch(List<Feed> feeds, boolean overflowed, boolean heartbeat) {
+            this.feeds = feeds;
+            this.overflowed = overflowed;
+            this.heartbeat = heartbeat;
+        }
+    }
+
+    private class Subscriber {
+        private final int userId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Feed> buffer = new ArrayDeque<>();
+        private final Set<Integer> replayedIds = new HashSet<>();
+        private int lastEventId;
+        private boolean replayed;
+        private boolean scheduled;
+        private boolean overflowed;
+        private boolean heartbeat;
+        private boolean closed;
+        private Thread sender;
+        private long sendStartedAt;
+
+        private Subscriber(int userId, int lastEventId, SseEmitter emitter) {
+            this.userId = userId;
+            this.lastEventId = lastEventId;
+            this.emitter = emitter;
+        }
+
+        private synchronized boolean offer(Feed feed) {
+            if (closed) {
+                return false;
+            }
+            if (buffer.size() >= bufferSize) {
+                overflowed = true;
+            } else {
+                buffer.addLast(feed);
+            }
+            return true;
+        }
+
+        private synchronized boolean requestHeartbeat() {
+            if (closed) {
+                return false;
+            }
+            heartbeat = true;
+            return true;
+        }
+
+        private synchronized boolean markScheduled() {
+            if (closed || scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        private synchronized Batch poll() {
+            if (closed || buffer.isEmpty() && !overflowed && !heartbeat) {
+                scheduled = false;
+                return null;
+            }
+            Batch batch = new Batch(new ArrayList<>(buffer), overflowed, heartbeat);
+            buffer.clear();
+            heartbeat = false;
+            return batch;
+        }
+
+        private synchronized void startSend() throws IOException {
+            if (closed) {
+                throw new IOException("Подписка на ленту закрыта.");
+            }
+            sender = Thread.currentThread();
+            sendStartedAt = System.nanoTime();
+        }
+
+        private synchronized void finishSend() {
+            sender = null;
+            if (closed) {
+                Thread.interrupted();
+            }
+        }
+
+        private synchronized boolean interruptStalledSend(long now) {
+            if (closed || sender == null || now - sendStartedAt < TimeUnit.MILLISECONDS.toNanos(sendTimeout)) {
+                return false;
+            }
+            closed = true;
+            buffer.clear();
+            sender.interrupt();
+            return true;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            buffer.clear();
+        }
+    }
+}
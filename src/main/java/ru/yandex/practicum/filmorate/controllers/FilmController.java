@@ -3,14 +3,22 @@ package ru.yandex.practicum.filmorate.controllers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportResult;
 import ru.yandex.practicum.filmorate.model.Score;
 import ru.yandex.practicum.filmorate.model.SortType;
+import ru.yandex.practicum.filmorate.model.Suggestions;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -19,6 +27,8 @@ import java.util.Optional;
 public class FilmController {
 
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
+    private final NdjsonReader ndjsonReader;
 
     @PostMapping("/films")
     @ResponseStatus(HttpStatus.CREATED)
@@ -26,6 +36,18 @@ public class FilmController {
         return filmService.saveNew(film);
     }
 
+    @PostMapping(value = "/films/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public List<ImportResult> saveAll(@RequestBody List<Film> films) {
+        return filmService.saveAll(films.iterator());
+    }
+
+    @PostMapping(value = "/films/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public List<ImportResult> saveAllFromNdjson(InputStream body) {
+        return filmService.saveAll(ndjsonReader.read(body, Film.class));
+    }
+
     @PutMapping("/films")
     @ResponseStatus(HttpStatus.OK)
     public Film update(@Valid @RequestBody Film film) {
@@ -34,8 +56,17 @@ public class FilmController {
 
     @GetMapping("/films")
     @ResponseStatus(HttpStatus.OK)
-    public Collection<Film> findAll() {
-        return filmService.findAll();
+    public Collection<Film> findAll(@RequestParam Optional<Integer> limit, @RequestParam Optional<String> cursor,
+                                    HttpServletResponse response) {
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return filmService.findAll();
+        }
+        return Pages.unwrap(filmService.findAll(limit, cursor), response);
+    }
+
+    @GetMapping(value = "/films", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.write(filmService::streamAll);
     }
 
     @GetMapping("/films/{id}")
@@ -50,6 +81,18 @@ public class FilmController {
         filmService.saveScore(score);
     }
 
+    @PutMapping(value = "/films/score/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public List<ImportResult> saveScores(@RequestBody List<Score> scores) {
+        return filmService.saveScores(scores.iterator());
+    }
+
+    @PutMapping(value = "/films/score/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public List<ImportResult> saveScoresFromNdjson(InputStream body) {
+        return filmService.saveScores(ndjsonReader.read(body, Score.class));
+    }
+
     @DeleteMapping("/films/{id}/score/{userId}")
     @ResponseStatus(HttpStatus.OK)
     public void removeScore(@PathVariable int id, @PathVariable int userId) {
@@ -72,8 +115,13 @@ public class FilmController {
 
     @GetMapping("/films/director/{directorId}")
     @ResponseStatus(HttpStatus.OK)
-    public Collection<Film> findByDirectorId(@PathVariable Integer directorId, @RequestParam("sortBy") SortType sortBy) {
-        return filmService.findByDirectorId(directorId, sortBy);
+    public Collection<Film> findByDirectorId(@PathVariable Integer directorId, @RequestParam("sortBy") SortType sortBy,
+                                             @RequestParam Optional<Integer> limit, @RequestParam Optional<String> cursor,
+                                             HttpServletResponse response) {
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return filmService.findByDirectorId(directorId, sortBy);
+        }
+        return Pages.unwrap(filmService.findByDirectorId(directorId, sortBy, limit, cursor), response);
     }
 
     @GetMapping("/films/common")
@@ -84,14 +132,27 @@ public class FilmController {
 
     @GetMapping("/users/{id}/recommendations")
     @ResponseStatus(HttpStatus.OK)
-    public Collection<Film> getRecommendation(@PathVariable int id) {
-        return filmService.getRecommendation(id);
+    public Collection<Film> getRecommendation(@PathVariable int id, @RequestParam Optional<Integer> count) {
+        return count.map(value -> filmService.getRecommendation(id, value))
+                .orElseGet(() -> filmService.getRecommendation(id));
+    }
+
+    @GetMapping("/films/suggest")
+    @ResponseStatus(HttpStatus.OK)
+    public Suggestions suggest(@RequestParam(required = false) String prefix, @RequestParam Optional<Integer> count) {
+        return filmService.suggest(prefix, count);
     }
 
     @GetMapping("/films/search")
     @ResponseStatus(HttpStatus.OK)
     public Collection<Film> searchByFilmAndDirector(@RequestParam(required = false) String query,
-                                                    @RequestParam(required = false) String by) {
-        return filmService.searchByFilmAndDirector(query, by);
+                                                    @RequestParam(required = false) String by,
+                                                    @RequestParam Optional<Integer> limit,
+                                                    @RequestParam Optional<String> cursor,
+                                                    HttpServletResponse response) {
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return filmService.searchByFilmAndDirector(query, by);
+        }
+        return Pages.unwrap(filmService.searchByFilmAndDirector(query, by, limit, cursor), response);
     }
 }
\ No newline at end of file
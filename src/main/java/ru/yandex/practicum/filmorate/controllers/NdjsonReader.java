@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+@Component
+@RequiredArgsConstructor
+public class NdjsonReader {
+
+    private final ObjectMapper objectMapper;
+
+    public <T> Iterator<T> read(InputStream inputStream, Class<T> type) {
+        ObjectReader reader = objectMapper.readerFor(type);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        return new Iterator<>() {
+
+            private String next = nextLine();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String line = next;
+                next = nextLine();
+                try {
+                    return reader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    return null;
+                }
+            }
+
+            private String nextLine() {
+                try {
+                    String line = lines.readLine();
+                    while (line != null && line.isBlank()) {
+                        line = lines.readLine();
+                    }
+                    return line;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import ru.yandex.practicum.filmorate.model.Page;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+final class Pages {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private Pages() {
+    }
+
+    static <T> List<T> unwrap(Page<T> page, HttpServletResponse response) {
+        if (page.getNext() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return page.getItems();
+    }
+}
@@ -46,11 +46,13 @@ public class ReviewController {
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
     public Collection<Review> findByFilmId(@RequestParam Optional<Integer> filmId,
-                                           @RequestParam(defaultValue = "10") int count) {
+                                           @RequestParam(defaultValue = "10") int count,
+                                           @RequestParam Optional<Integer> afterUseful,
+                                           @RequestParam Optional<Integer> afterId) {
         if (filmId.isEmpty()) {
-            return reviewService.findAll(count);
+            return reviewService.findAll(count, afterUseful, afterId);
         } else {
-            return reviewService.findByFilmId(filmId.get(), count);
+            return reviewService.findByFilmId(filmId.get(), count, afterUseful, afterId);
         }
     }
 
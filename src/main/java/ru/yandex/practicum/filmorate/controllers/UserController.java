@@ -3,13 +3,19 @@ package ru.yandex.practicum.filmorate.controllers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.util.Collection;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,6 +24,8 @@ import java.util.Collection;
 public class UserController {
 
     private final UserService userService;
+    private final NdjsonWriter ndjsonWriter;
+    private final FeedStreamBroker feedStreamBroker;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -33,8 +41,17 @@ public class UserController {
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public Collection<User> findAll(@RequestParam Optional<Integer> limit, @RequestParam Optional<String> cursor,
+                                    HttpServletResponse response) {
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return userService.findAll();
+        }
+        return Pages.unwrap(userService.findAll(limit, cursor), response);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.write(userService::streamAll);
     }
 
     @GetMapping("/{id}")
@@ -57,8 +74,12 @@ public class UserController {
 
     @GetMapping("/{id}/friends")
     @ResponseStatus(HttpStatus.OK)
-    public Collection<User> findFriends(@PathVariable int id) {
-        return userService.findFriends(id);
+    public Collection<User> findFriends(@PathVariable int id, @RequestParam Optional<Integer> limit,
+                                        @RequestParam Optional<String> cursor, HttpServletResponse response) {
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return userService.findFriends(id);
+        }
+        return Pages.unwrap(userService.findFriends(id, limit, cursor), response);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -73,8 +94,30 @@ public class UserController {
         userService.removeUser(userId);
     }
 
+    @GetMapping("/{userId}/friends/suggestions")
+    public Collection<User> findFriendSuggestions(@PathVariable int userId, @RequestParam Optional<Integer> count) {
+        return userService.findFriendSuggestions(userId, count);
+    }
+
+    @GetMapping("/{userId}/timeline")
+    public Collection<Feed> findTimeline(@PathVariable int userId, @RequestParam Optional<Integer> limit,
+                                         @RequestParam Optional<String> cursor, HttpServletResponse response) {
+        return Pages.unwrap(userService.findTimeline(userId, limit, cursor), response);
+    }
+
     @GetMapping("/{userId}/feed")
-    public Collection<Feed> findFeed(@PathVariable int userId) {
-        return userService.findFeed(userId);
+    public Collection<Feed> findFeed(@PathVariable int userId, @RequestParam Optional<Integer> limit,
+                                     @RequestParam Optional<String> cursor, HttpServletResponse response) {
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return userService.findFeed(userId);
+        }
+        return Pages.unwrap(userService.findFeed(userId, limit, cursor), response);
+    }
+
+    @GetMapping(value = "/{userId}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeed(@PathVariable int userId,
+                                 @RequestHeader(value = "Last-Event-ID", required = false) Optional<Integer> lastEventId) {
+        userService.checkExists(userId);
+        return feedStreamBroker.subscribe(userId, lastEventId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+@Slf4j
+@RequiredArgsConstructor
+public class DataGenerator {
+
+    private static final LocalDate FIRST_RELEASE_DATE = LocalDate.of(1950, 1, 1);
+    private static final int RELEASE_DAYS = 75 * 365;
+    private static final LocalDate FIRST_BIRTHDAY = LocalDate.of(1950, 1, 1);
+    private static final int BIRTHDAY_DAYS = 55 * 365;
+    private static final long FEED_SECONDS = ChronoUnit.DAYS.getDuration().getSeconds() * 365;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void generate(GeneratorSettings settings) {
+        Random random = new Random(settings.getSeed());
+        int firstDirectorId = findMaxId("DIRECTORS", "DIRECTOR_ID");
+        int firstFilmId = findMaxId("FILMS", "FILM_ID");
+        int firstUserId = findMaxId("USERS", "USER_ID");
+        int firstReviewId = findMaxId("REVIEWS", "REVIEW_ID");
+        List<Integer> genreIds = jdbcTemplate.queryForList("SELECT GENRE_ID FROM GENRES ORDER BY GENRE_ID", Integer.class);
+        List<Integer> mpaIds = jdbcTemplate.queryForList("SELECT MPA_ID FROM MPA ORDER BY MPA_ID", Integer.class);
+        Integer friendshipStatusId = jdbcTemplate.queryForObject("SELECT FRIENDSHIP_STATUS_ID FROM FRIENDSHIP_STATUS " +
+                "WHERE \"Friendship_status_name\" = 'request'", Integer.class);
+        Instant feedEnd = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        ZipfDistribution filmPopularity = new ZipfDistribution(settings.getFilms(), settings.getPopularityExponent(), random);
+        ZipfDistribution userPopularity = new ZipfDistribution(settings.getUsers(), settings.getPopularityExponent(), random);
+
+        try (Batch directors = new Batch("INSERT INTO DIRECTORS VALUES (?, ?)", settings.getBatchSize())) {
+            for (int i = 1; i <= settings.getDirectors(); i++) {
+                directors.add(firstDirectorId + i, "director " + (firstDirectorId + i));
+            }
+        }
+
+        try (Batch films = new Batch("INSERT INTO FILMS VALUES (?, ?, ?, ?, ?, ?)", settings.getBatchSize());
+             Batch filmGenres = new Batch("INSERT INTO FILM_GENRES VALUES (?, ?)", settings.getBatchSize(), films);
+             Batch filmDirectors = new Batch("INSERT INTO FILM_DIRECTOR VALUES (?, ?)", settings.getBatchSize(), films)) {
+            for (int i = 1; i <= settings.getFilms(); i++) {
+                int filmId = firstFilmId + i;
+                films.add(filmId, "film " + filmId, "description " + filmId,
+                        Date.valueOf(FIRST_RELEASE_DATE.plusDays(random.nextInt(RELEASE_DAYS))),
+                        60 + random.nextInt(140), mpaIds.get(random.nextInt(mpaIds.size())));
+                int genresCount = 1 + random.nextInt(Math.min(3, genreIds.size()));
+                int firstGenre = random.nextInt(genreIds.size());
+                for (int j = 0; j < genresCount; j++) {
+                    filmGenres.add(filmId, genreIds.get((firstGenre + j) % genreIds.size()));
+                }
+                if (settings.getDirectors() > 0 && random.nextInt(10) < 7) {
+                    filmDirectors.add(filmId, firstDirectorId + 1 + random.nextInt(settings.getDirectors()));
+                }
+            }
+        }
+
+        try (Batch users = new Batch("INSERT INTO USERS VALUES (?, ?, ?, ?, ?)", settings.getBatchSize())) {
+            for (int i = 1; i <= settings.getUsers(); i++) {
+                int userId = firstUserId + i;
+                users.add(userId, "user " + userId, "login" + userId, "user" + userId + "@filmorate.ru",
+                        Date.valueOf(FIRST_BIRTHDAY.plusDays(random.nextInt(BIRTHDAY_DAYS))));
+            }
+        }
+
+        long[] scoreSums = new long[settings.getFilms()];
+        int[] scoreCounts = new int[settings.getFilms()];
+        try (Batch friends = new Batch("INSERT INTO LIST_OF_FRIENDS VALUES (?, ?, ?)", settings.getBatchSize());
+             Batch scores = new Batch("INSERT INTO FILM_SCORE VALUES (?, ?, ?)", settings.getBatchSize());
+             Batch feeds = new Batch("INSERT INTO FEEDS (TIMESTAMP, USER_ID, ENTITY_ID, EVENT_TYPE_ID, OPERATION_ID) " +
+                     "VALUES (?, ?, ?, ?, ?)", settings.getBatchSize())) {
+            for (int i = 1; i <= settings.getUsers(); i++) {
+                int userId = firstUserId + i;
+                for (int friend : sampleDistinct(userPopularity, random, settings.getFriendsPerUser(),
+                        settings.getUsers() - 1, i - 1)) {
+                    friends.add(firstUserId + 1 + friend, userId, friendshipStatusId);
+                    feeds.add(randomTimestamp(random, feedEnd), userId, firstUserId + 1 + friend,
+                            EventType.FRIEND.getEventTypeId(), Operation.ADD.getOperationId());
+                }
+                for (int film : sampleDistinct(filmPopularity, random, settings.getScoresPerUser(),
+                        settings.getFilms(), -1)) {
+                    int score = Math.max(1, Math.min(10, (int) Math.round(6.5 + random.nextGaussian() * 2)));
+                    scores.add(firstFilmId + 1 + film, userId, score);
+                    scoreSums[film] += score;
+                    scoreCounts[film]++;
+                    feeds.add(randomTimestamp(random, feedEnd), userId, firstFilmId + 1 + film,
+                            EventType.SCORE.getEventTypeId(), Operation.ADD.getOperationId());
+                }
+            }
+        }
+
+        try (Batch ratingStats = new Batch("INSERT INTO FILM_RATING_STATS (FILM_ID, SCORE_SUM, SCORE_COUNT) " +
+                "VALUES (?, ?, ?)", settings.getBatchSize())) {
+            for (int film = 0; film < settings.getFilms(); film++) {
+                if (scoreCounts[film] > 0) {
+                    ratingStats.add(firstFilmId + 1 + film, scoreSums[film], scoreCounts[film]);
+                }
+            }
+        }
+
+        int[] useful = new int[settings.getReviews()];
+        long likesSeed = random.nextLong();
+        generateReviewLikes(settings, new Random(likesSeed), firstUserId, firstReviewId, useful, null);
+        try (Batch reviews = new Batch("INSERT INTO REVIEWS (REVIEW_ID, CONTENT, USER_ID, FILM_ID, IS_POSITIVE, USEFUL) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", settings.getBatchSize());
+             Batch feeds = new Batch("INSERT INTO FEEDS (TIMESTAMP, USER_ID, ENTITY_ID, EVENT_TYPE_ID, OPERATION_ID) " +
+                     "VALUES (?, ?, ?, ?, ?)", settings.getBatchSize())) {
+            for (int i = 1; i <= settings.getReviews(); i++) {
+                int reviewId = firstReviewId + i;
+                int userId = firstUserId + 1 + random.nextInt(settings.getUsers());
+                reviews.add(reviewId, "review " + reviewId, userId, firstFilmId + 1 + filmPopularity.sample(random),
+                        random.nextInt(3) > 0, useful[i - 1]);
+                feeds.add(randomTimestamp(random, feedEnd), userId, reviewId,
+                        EventType.REVIEW.getEventTypeId(), Operation.ADD.getOperationId());
+            }
+        }
+        try (Batch reviewLikes = new Batch("INSERT INTO REVIEWS_LIKES VALUES (?, ?, ?)", settings.getBatchSize())) {
+            generateReviewLikes(settings, new Random(likesSeed), firstUserId, firstReviewId, null, reviewLikes);
+        }
+
+        restartIdentity("DIRECTORS", "DIRECTOR_ID");
+        restartIdentity("FILMS", "FILM_ID");
+        restartIdentity("USERS", "USER_ID");
+        restartIdentity("REVIEWS", "REVIEW_ID");
+        log.info("Сгенерированы данные: {} фильмов, {} пользователей, {} режиссеров, {} отзывов.",
+                settings.getFilms(), settings.getUsers(), settings.getDirectors(), settings.getReviews());
+    }
+
+    private void generateReviewLikes(GeneratorSettings settings, Random random, int firstUserId, int firstReviewId,
+                                     int[] useful, Batch reviewLikes) {
+        if (settings.getReviews() == 0) {
+            return;
+        }
+        for (int i = 1; i <= settings.getUsers(); i++) {
+            int likesCount = random.nextInt(2 * settings.getReviewLikesPerUser() + 1);
+            Set<Integer> likedReviews = new HashSet<>();
+            for (int j = 0; j < likesCount && likedReviews.size() < settings.getReviews(); j++) {
+                int review = random.nextInt(settings.getReviews());
+                int like = random.nextInt(10) < 7 ? 1 : -1;
+                if (likedReviews.add(review)) {
+                    if (useful != null) {
+                        useful[review] += like;
+                    } else {
+                        reviewLikes.add(firstUserId + i, firstReviewId + 1 + review, like);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Integer> sampleDistinct(ZipfDistribution distribution, Random random, int average, int available,
+                                         int excluded) {
+        int count = Math.min(available, random.nextInt(2 * average + 1));
+        Set<Integer> sampled = new HashSet<>();
+        List<Integer> result = new ArrayList<>(count);
+        for (int attempt = 0; result.size() < count && attempt < count * 20; attempt++) {
+            int value = distribution.sample(random);
+            if (value != excluded && sampled.add(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private Timestamp randomTimestamp(Random random, Instant end) {
+        return Timestamp.from(end.minusSeconds((long) (random.nextDouble() * FEED_SECONDS)));
+    }
+
+    private int findMaxId(String table, String column) {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table, Integer.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    private void restartIdentity(String table, String column) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " +
+                (findMaxId(table, column) + 1));
+    }
+
+    private class Batch implements AutoCloseable {
+
+        private final String sql;
+        private final int size;
+        private final List<Object[]> rows;
+        private final Batch[] parents;
+
+        Batch(String sql, int size, Batch... parents) {
+            this.sql = sql;
+            this.size = size;
+            this.rows = new ArrayList<>(size);
+            this.parents = parents;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= size) {
+                flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+        private void flush() {
+            for (Batch parent : parents) {
+                parent.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
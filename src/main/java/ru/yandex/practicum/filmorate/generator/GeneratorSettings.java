@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import lombok.Data;
+
+@Data
+public class GeneratorSettings {
+
+    private long seed = 42;
+
+    private int users = 10_000;
+
+    private int films = 2_000;
+
+    private int directors = 200;
+
+    private int scoresPerUser = 20;
+
+    private int friendsPerUser = 10;
+
+    private int reviews = 5_000;
+
+    private int reviewLikesPerUser = 5;
+
+    private double popularityExponent = 1.0;
+
+    private int batchSize = 5_000;
+}
@@ -10,4 +10,13 @@ public enum EventType {
     REVIEW(2),
     FRIEND(3);
     final int eventTypeId;
-}
\ No newline at end of file
+
+    public static EventType findById(int eventTypeId) {
+        for (EventType value : values()) {
+            if (value.eventTypeId == eventTypeId) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный идентификатор " + eventTypeId);
+    }
+}
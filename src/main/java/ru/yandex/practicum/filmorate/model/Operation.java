@@ -10,4 +10,13 @@ public enum Operation {
     ADD(2),
     UPDATE(3);
     final int operationId;
-}
\ No newline at end of file
+
+    public static Operation findById(int operationId) {
+        for (Operation value : values()) {
+            if (value.operationId == operationId) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный идентификатор " + operationId);
+    }
+}
@@ -3,11 +3,16 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.DirectorNotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.storage.dao.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSuggestIndex;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -16,18 +21,26 @@ import java.util.Optional;
 public class DirectorsService {
 
     private final DirectorStorage directorStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
 
     public Director saveNew(Director director) {
         int id = directorStorage.saveNew(director);
         log.info("Режиссер добавлен.");
-        return findById(id);
+        Director savedDirector = findById(id);
+        filmSearchIndex.saveDirector(savedDirector.getId(), savedDirector.getName());
+        filmSuggestIndex.saveDirector(savedDirector.getId(), savedDirector.getName());
+        return savedDirector;
     }
 
     public Director update(Director director) {
-        findById(director.getId());
+        checkExists(director.getId());
         int id = directorStorage.update(director);
         log.info("Режиссер обновлен.");
-        return findById(id);
+        Director updatedDirector = findById(id);
+        filmSearchIndex.saveDirector(updatedDirector.getId(), updatedDirector.getName());
+        filmSuggestIndex.saveDirector(updatedDirector.getId(), updatedDirector.getName());
+        return updatedDirector;
     }
 
     public Collection<Director> findAll() {
@@ -42,16 +55,36 @@ public class DirectorsService {
         return director;
     }
 
+    public void checkExists(int id) {
+        if (!directorStorage.exists(id)) {
+            throw new DirectorNotFoundException("Режиссер c ID " + id + " не найден.");
+        }
+    }
+
+    public void rebuildDirectorIds() {
+        directorStorage.rebuildIds();
+    }
+
     public void removeById(int id) {
-        findById(id);
+        checkExists(id);
         log.info("Режиссер удален.");
         directorStorage.removeById(id);
+        filmSearchIndex.removeDirector(id);
+        filmSuggestIndex.removeDirector(id);
+    }
+
+    public List<Suggestion> suggestByName(String prefix, int count) {
+        return directorStorage.suggestByName(prefix, count);
     }
 
     public List<Director> findByFilmId(int filmId) {
         return directorStorage.findByFilmId(filmId);
     }
 
+    public Map<Integer, List<Director>> findByFilmIds(Collection<Integer> filmIds) {
+        return directorStorage.findByFilmIds(filmIds);
+    }
+
     public void save(Optional<List<Director>> directors, int filmId) {
         directors.ifPresent(directorList -> directorStorage.save(directorList, filmId));
     }
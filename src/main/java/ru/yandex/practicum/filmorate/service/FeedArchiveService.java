@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class FeedArchiveService {
+
+    private final FeedStorage feedStorage;
+    private final ObjectWriter writer;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    public FeedArchiveService(FeedStorage feedStorage, ObjectMapper objectMapper,
+                              @Value("${filmorate.feed.retention-months:0}") int retentionMonths,
+                              @Value("${filmorate.feed.archive-dir:./db/feed-archive}") String archiveDir) {
+        this.feedStorage = feedStorage;
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = Paths.get(archiveDir);
+    }
+
+    public Path getArchiveFile(int month) {
+        return archiveDir.resolve("feeds-" + month + ".ndjson.gz");
+    }
+
+    @Scheduled(cron = "${filmorate.feed.compaction-cron:0 0 3 * * *}")
+    public List<Integer> compact() {
+        List<Integer> compacted = new ArrayList<>();
+        if (retentionMonths <= 0) {
+            return compacted;
+        }
+        YearMonth firstLiveMonth = YearMonth.now().minusMonths(retentionMonths);
+        for (int month : feedStorage.findMonthsBefore(firstLiveMonth.getYear() * 100 + firstLiveMonth.getMonthValue())) {
+            try {
+                int lastEventId = archive(month);
+                int removed = feedStorage.removeByMonth(month, lastEventId);
+                log.info("События ленты за {} перенесены в архив {}, удалено {}.", month, getArchiveFile(month), removed);
+                compacted.add(month);
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Не удалось перенести в архив события ленты за {}: {}", month, e.getMessage());
+                break;
+            }
+        }
+        return compacted;
+    }
+
+    private int archive(int month) throws IOException {
+        Files.createDirectories(archiveDir);
+        int[] lastEventId = {0};
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(getArchiveFile(month),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            feedStorage.findByMonth(month, feed -> {
+                try {
+                    writer.writeValue(outputStream, feed);
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                lastEventId[0] = Math.max(lastEventId[0], feed.getEventId());
+            });
+        }
+        return lastEventId[0];
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+@Service
+@RequiredArgsConstructor
+public class FilmRatingsService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] locks = IntStream.range(0, LOCK_STRIPES)
+            .mapToObj(stripe -> new ReentrantLock())
+            .toArray(Lock[]::new);
+
+    private final FilmStorage filmStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
+
+    public void updateRatings(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty() || !popularFilmsIndex.isEnabled() && !filmSuggestIndex.isEnabled()) {
+            return;
+        }
+        int[] stripes = filmIds.stream()
+                .mapToInt(filmId -> Math.floorMod(filmId, LOCK_STRIPES))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            Map<Integer, Double> storedRatings = filmStorage.findRatingsByFilmIds(filmIds);
+            Map<Integer, Double> ratings = new HashMap<>();
+            filmIds.forEach(filmId -> ratings.put(filmId, storedRatings.getOrDefault(filmId, 0.0)));
+            popularFilmsIndex.updateRatings(ratings);
+            filmSuggestIndex.updateRatings(ratings);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+}
@@ -2,14 +2,31 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.RecommendationEngine;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,17 +34,61 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FilmService {
 
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int SUGGEST_COUNT = 10;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final int HYDRATE_BATCH_SIZE = 10_000;
+    private static final int MAX_SCORE = 10;
+
     private final FilmStorage filmStorage;
     private final DirectorsService directorsService;
     private final UserService userService;
     private final GenresService genresService;
     private final MpaService mpaService;
     private final FeedStorage feedStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final RecommendationEngine recommendationEngine;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final FilmRatingsService filmRatingsService;
+    private final Validator validator;
 
     public Film saveNew(Film film) {
         int filmId = filmStorage.saveNew(film);
         saveAdditionalInfo(film, filmId);
-        return findById(filmId);
+        Film savedFilm = findById(filmId);
+        popularFilmsIndex.save(savedFilm);
+        saveToSearchIndex(savedFilm);
+        saveToSuggestIndex(savedFilm);
+        return savedFilm;
+    }
+
+    public List<ImportResult> saveAll(Iterator<Film> films) {
+        Set<Integer> mpaIds = mpaService.findAll().stream().map(Mpa::getId).collect(Collectors.toSet());
+        Set<Integer> genreIds = genresService.findAllGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+        Set<Integer> directorIds = directorsService.findAll().stream().map(Director::getId).collect(Collectors.toSet());
+        List<ImportResult> results = new ArrayList<>();
+        List<Film> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<Integer> batchIndexes = new ArrayList<>(IMPORT_BATCH_SIZE);
+        while (films.hasNext()) {
+            Film film = films.next();
+            int index = results.size();
+            Optional<String> error = checkImportedFilm(film, mpaIds, genreIds, directorIds);
+            results.add(new ImportResult(index, null, error.orElse(null)));
+            if (error.isEmpty()) {
+                batch.add(film);
+                batchIndexes.add(index);
+            }
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                saveImportBatch(batch, batchIndexes, results);
+                batch.clear();
+                batchIndexes.clear();
+            }
+        }
+        saveImportBatch(batch, batchIndexes, results);
+        log.info("Импорт фильмов завершен, добавлено {} из {}.",
+                results.stream().filter(result -> result.getId() != null).count(), results.size());
+        return results;
     }
 
     public Film update(Film film) {
@@ -35,11 +96,31 @@ public class FilmService {
         genresService.removeFilmGenres(filmId);
         directorsService.removeFromFilmByFilmId(filmId);
         saveAdditionalInfo(film, filmId);
-        return findById(filmId);
+        Film updatedFilm = findById(filmId);
+        popularFilmsIndex.save(updatedFilm);
+        saveToSearchIndex(updatedFilm);
+        saveToSuggestIndex(updatedFilm);
+        return updatedFilm;
     }
 
     public Collection<Film> findAll() {
-        return filmStorage.findAll().stream().peek(this::findAdditionalInfo).collect(Collectors.toList());
+        Collection<Film> films = filmStorage.findAll();
+        findAdditionalInfo(films);
+        return films;
+    }
+
+    public Page<Film> findAll(Optional<Integer> limit, Optional<String> cursor) {
+        int pageSize = PageCursor.checkLimit(limit);
+        int afterId = PageCursor.decode(cursor, "films", 1).map(after -> after.getInt(0)).orElse(0);
+        return toPage(filmStorage.findAllAfter(pageSize + 1, afterId), pageSize,
+                film -> PageCursor.encode("films", film.getId()));
+    }
+
+    public void streamAll(Consumer<Film> consumer) {
+        filmStorage.findAll(STREAM_BATCH_SIZE, films -> {
+            findAdditionalInfo(films);
+            films.forEach(consumer);
+        });
     }
 
     public Film findById(int filmId) {
@@ -49,26 +130,149 @@ public class FilmService {
         return film;
     }
 
+    public void checkExists(int filmId) {
+        if (!filmStorage.exists(filmId)) {
+            throw new FilmNotFoundException("Фильм c ID " + filmId + " не найден.");
+        }
+    }
+
+    public void rebuildFilmIds() {
+        filmStorage.rebuildIds();
+    }
+
     public void saveScore(Score score) {
-        userService.findById(score.getUserId());
-        findById(score.getFilmId());
+        userService.checkExists(score.getUserId());
+        checkExists(score.getFilmId());
         log.info("К фильму добавлен лайк.");
         filmStorage.saveScore(score.getFilmId(), score.getUserId(), score.getScore());
+        filmRatingsService.updateRatings(List.of(score.getFilmId()));
+        recommendationEngine.saveScore(score.getUserId(), score.getFilmId(), score.getScore());
         feedStorage.saveFeed(score.getUserId(), score.getFilmId(), EventType.SCORE.getEventTypeId(), Operation.ADD.getOperationId());
     }
 
+    public List<ImportResult> saveScores(Iterator<Score> scores) {
+        List<ImportResult> results = new ArrayList<>();
+        List<Score> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<Integer> batchIndexes = new ArrayList<>(IMPORT_BATCH_SIZE);
+        while (scores.hasNext()) {
+            Score score = scores.next();
+            int index = results.size();
+            Optional<String> error = checkImportedScore(score);
+            results.add(new ImportResult(index, null, error.orElse(null)));
+            if (error.isEmpty()) {
+                batch.add(score);
+                batchIndexes.add(index);
+            }
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                saveScoresBatch(batch, batchIndexes, results);
+                batch.clear();
+                batchIndexes.clear();
+            }
+        }
+        saveScoresBatch(batch, batchIndexes, results);
+        log.info("Импорт оценок завершен, добавлено {} из {}.",
+                results.stream().filter(result -> result.getId() != null).count(), results.size());
+        return results;
+    }
+
     public void removeScore(int filmId, int userId) {
-        userService.findById(userId);
-        findById(filmId);
+        userService.checkExists(userId);
+        checkExists(filmId);
         log.info("У фильма удален лайк.");
         filmStorage.removeScore(filmId, userId);
+        filmRatingsService.updateRatings(List.of(filmId));
+        recommendationEngine.removeScore(userId, filmId);
         feedStorage.saveFeed(userId, filmId, EventType.SCORE.getEventTypeId(), Operation.REMOVE.getOperationId());
     }
 
+    public void rebuildPopularFilmsIndex() {
+        if (!popularFilmsIndex.isEnabled()) {
+            return;
+        }
+        int[] filmsCount = new int[1];
+        popularFilmsIndex.rebuild(index -> {
+            Collection<Film> films = filmStorage.findAll();
+            findAdditionalInfo(films);
+            index.load(films);
+            filmsCount[0] = films.size();
+        });
+        log.info("Индекс популярных фильмов загружен, фильмов в индексе: {}.", filmsCount[0]);
+    }
+
+    public void rebuildRecommendationEngine() {
+        if (!recommendationEngine.isEnabled()) {
+            return;
+        }
+        int[] scoresCount = new int[1];
+        recommendationEngine.rebuild(engine -> {
+            List<Score> scores = filmStorage.findAllScores();
+            engine.load(scores);
+            scoresCount[0] = scores.size();
+        });
+        log.info("Модель рекомендаций загружена, оценок в модели: {}.", scoresCount[0]);
+    }
+
+    public void rebuildFilmSearchIndex() {
+        if (!filmSearchIndex.isEnabled()) {
+            return;
+        }
+        int[] filmsCount = new int[1];
+        filmSearchIndex.rebuild(index -> {
+            directorsService.findAll().forEach(director -> index.saveDirector(director.getId(), director.getName()));
+            filmStorage.findAll(STREAM_BATCH_SIZE, films -> {
+                Map<Integer, List<Director>> directors = directorsService.findByFilmIds(films.stream()
+                        .map(Film::getId)
+                        .collect(Collectors.toList()));
+                films.forEach(film -> {
+                    film.setDirectors(directors.getOrDefault(film.getId(), new ArrayList<>()));
+                    index.saveFilm(film.getId(), film.getName(), findDirectorIds(film));
+                });
+                filmsCount[0] += films.size();
+            });
+        });
+        log.info("Поисковый индекс фильмов загружен, фильмов в индексе: {}.", filmsCount[0]);
+    }
+
+    public void rebuildFilmSuggestIndex() {
+        if (!filmSuggestIndex.isEnabled()) {
+            return;
+        }
+        int[] filmsCount = new int[1];
+        filmSuggestIndex.rebuild(index -> {
+            directorsService.findAll().forEach(director -> index.saveDirector(director.getId(), director.getName()));
+            filmStorage.findAll(STREAM_BATCH_SIZE, films -> {
+                List<Integer> filmIds = films.stream().map(Film::getId).collect(Collectors.toList());
+                Map<Integer, List<Director>> directors = directorsService.findByFilmIds(filmIds);
+                Map<Integer, Double> ratings = filmStorage.findRatingsByFilmIds(filmIds);
+                films.forEach(film -> {
+                    film.setDirectors(directors.getOrDefault(film.getId(), new ArrayList<>()));
+                    index.saveFilm(film.getId(), film.getName(), ratings.getOrDefault(film.getId(), 0.0),
+                            findDirectorIds(film));
+                });
+                filmsCount[0] += films.size();
+            });
+        });
+        log.info("Индекс подсказок загружен, фильмов в индексе: {}.", filmsCount[0]);
+    }
+
+    public List<Integer> rebuildRatingStats() {
+        List<Integer> driftedFilms = filmStorage.findRatingStatsDrift();
+        if (driftedFilms.isEmpty()) {
+            log.info("Рейтинги фильмов совпадают с оценками пользователей.");
+        } else {
+            log.warn("Рейтинги фильмов {} расходятся с оценками пользователей и будут пересчитаны.", driftedFilms);
+            filmStorage.rebuildRatingStats();
+            filmRatingsService.updateRatings(driftedFilms);
+        }
+        return driftedFilms;
+    }
+
     public Collection<Film> findPopular(int count, Optional<Integer> genreId, Optional<Integer> year) {
         Collection<Film> films;
         if (count <= 0) {
             throw new ValidationException("Значение выводимых фильмов не может быть меньше или равно нулю.");
+        } else if (popularFilmsIndex.isEnabled()) {
+            films = findByIds(popularFilmsIndex.findPopular(count, genreId, year));
         } else if (genreId.isPresent() && year.isPresent()) {
             films = filmStorage.findPopularByGenreAndYear(count, genreId.get(), year.get());
         } else if (genreId.isPresent()) {
@@ -80,24 +284,214 @@ public class FilmService {
         }
 
         log.info("Популярные фильмы найдены.");
-        return films.stream().peek(this::findAdditionalInfo).collect(Collectors.toList());
+        findAdditionalInfo(films);
+        return films;
     }
 
     public Collection<Film> findByDirectorId(Integer directorId, SortType sortBy) {
-        directorsService.findById(directorId);
+        directorsService.checkExists(directorId);
         if (!(sortBy.equals(SortType.year) || sortBy.equals(SortType.ratings))) {
             throw new ValidationException("Недопустимый параметр сортировки.");
         }
 
-        return filmStorage.findByDirectorId(directorId, sortBy).stream().peek(this::findAdditionalInfo)
-                .collect(Collectors.toList());
+        Collection<Film> films = filmStorage.findByDirectorId(directorId, sortBy);
+        findAdditionalInfo(films);
+        return films;
+    }
+
+    public Page<Film> findByDirectorId(Integer directorId, SortType sortBy, Optional<Integer> limit,
+                                       Optional<String> cursor) {
+        directorsService.checkExists(directorId);
+        int pageSize = PageCursor.checkLimit(limit);
+        String endpoint = "director-films-" + sortBy;
+        Optional<PageCursor> after = PageCursor.decode(cursor, endpoint, 2);
+        int afterId = after.map(value -> value.getInt(1)).orElse(0);
+        if (sortBy.equals(SortType.year)) {
+            int afterYear = after.map(value -> value.getInt(0)).orElse(Integer.MIN_VALUE);
+            return toPage(filmStorage.findByDirectorIdByYearAfter(directorId, pageSize + 1, afterYear, afterId),
+                    pageSize, film -> PageCursor.encode(endpoint, film.getReleaseDate().getYear(), film.getId()));
+        } else if (sortBy.equals(SortType.ratings)) {
+            double afterRating = after.map(value -> value.getDouble(0)).orElse(Double.MAX_VALUE);
+            return toPage(filmStorage.findByDirectorIdByRatingAfter(directorId, pageSize + 1, afterRating, afterId),
+                    pageSize, film -> PageCursor.encode(endpoint, film.getRating(), film.getId()));
+        }
+        throw new ValidationException("Недопустимый параметр сортировки.");
+    }
+
+    private Page<Film> toPage(List<Film> films, int pageSize, Function<Film, String> cursorOf) {
+        findAdditionalInfo(films);
+        return PageCursor.toPage(films, pageSize, cursorOf);
+    }
+
+    private List<Film> findByIds(List<Integer> filmIds) {
+        Map<Integer, Film> films = filmStorage.findByIds(filmIds).stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        return filmIds.stream().map(films::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     private void findAdditionalInfo(Film film) {
-        film.setGenres(genresService.findByFilmId(film.getId()));
-        film.setMpa(mpaService.findByFilmId(film.getId()));
-        film.setDirectors(directorsService.findByFilmId(film.getId()));
-        film.setRating(filmStorage.findRating(film.getId()));
+        findAdditionalInfo(List.of(film));
+    }
+
+    private void findAdditionalInfo(Collection<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        if (films.size() > HYDRATE_BATCH_SIZE) {
+            List<Film> filmsList = new ArrayList<>(films);
+            for (int from = 0; from < filmsList.size(); from += HYDRATE_BATCH_SIZE) {
+                findAdditionalInfo(filmsList.subList(from, Math.min(filmsList.size(), from + HYDRATE_BATCH_SIZE)));
+            }
+            return;
+        }
+        List<Integer> filmIds = films.stream().map(Film::getId).collect(Collectors.toList());
+        Map<Integer, List<Genre>> genres = genresService.findByFilmIds(filmIds);
+        Map<Integer, Mpa> ratings = mpaService.findByFilmIds(filmIds);
+        Map<Integer, List<Director>> directors = directorsService.findByFilmIds(filmIds);
+        Map<Integer, Double> scores = filmStorage.findRatingsByFilmIds(filmIds);
+        for (Film film : films) {
+            film.setGenres(genres.getOrDefault(film.getId(), new ArrayList<>()));
+            film.setMpa(ratings.get(film.getId()));
+            film.setDirectors(directors.getOrDefault(film.getId(), new ArrayList<>()));
+            film.setRating(scores.getOrDefault(film.getId(), 0.0));
+        }
+    }
+
+    private Optional<String> checkImportedFilm(Film film, Set<Integer> mpaIds, Set<Integer> genreIds,
+                                               Set<Integer> directorIds) {
+        if (film == null) {
+            return Optional.of("Некорректные данные фильма.");
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return Optional.of(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" ")));
+        }
+        if (film.getMpa() == null || !mpaIds.contains(film.getMpa().getId())) {
+            return Optional.of("Рейтинг фильма не найден.");
+        }
+        if (film.getGenres() != null && film.getGenres().stream().anyMatch(genre -> !genreIds.contains(genre.getId()))) {
+            return Optional.of("Жанр фильма не найден.");
+        }
+        if (film.getDirectors() != null
+                && film.getDirectors().stream().anyMatch(director -> !directorIds.contains(director.getId()))) {
+            return Optional.of("Режиссер фильма не найден.");
+        }
+        return Optional.empty();
+    }
+
+    private Optional<String> checkImportedScore(Score score) {
+        if (score == null) {
+            return Optional.of("Некорректные данные оценки.");
+        }
+        Set<ConstraintViolation<Score>> violations = validator.validate(score);
+        if (!violations.isEmpty()) {
+            return Optional.of(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        if (score.getScore() == null || score.getScore() > MAX_SCORE) {
+            return Optional.of("Оценка должна быть от 1 до " + MAX_SCORE + ".");
+        }
+        return Optional.empty();
+    }
+
+    private void saveScoresBatch(List<Score> scores, List<Integer> indexes, List<ImportResult> results) {
+        if (scores.isEmpty()) {
+            return;
+        }
+        Set<Integer> missingUserIds = userService.findMissingIds(
+                scores.stream().map(Score::getUserId).collect(Collectors.toSet()));
+        Set<Integer> missingFilmIds = filmStorage.existsAll(
+                scores.stream().map(Score::getFilmId).collect(Collectors.toSet()));
+        Map<List<Integer>, Score> lastScores = new LinkedHashMap<>();
+        List<Score> savedScores = new ArrayList<>();
+        List<Integer> savedIndexes = new ArrayList<>();
+        for (int i = 0; i < scores.size(); i++) {
+            Score score = scores.get(i);
+            int index = indexes.get(i);
+            if (missingUserIds.contains(score.getUserId())) {
+                results.set(index, new ImportResult(index, null,
+                        "Пользователь c ID " + score.getUserId() + " не найден."));
+            } else if (missingFilmIds.contains(score.getFilmId())) {
+                results.set(index, new ImportResult(index, null,
+                        "Фильм c ID " + score.getFilmId() + " не найден."));
+            } else {
+                lastScores.remove(List.of(score.getFilmId(), score.getUserId()));
+                lastScores.put(List.of(score.getFilmId(), score.getUserId()), score);
+                savedScores.add(score);
+                savedIndexes.add(index);
+            }
+        }
+        if (lastScores.isEmpty()) {
+            return;
+        }
+        try {
+            filmStorage.saveScores(new ArrayList<>(lastScores.values()));
+        } catch (DataIntegrityViolationException e) {
+            savedIndexes.forEach(index -> results.set(index, new ImportResult(index, null, e.getMessage())));
+            return;
+        }
+        for (int i = 0; i < savedScores.size(); i++) {
+            int index = savedIndexes.get(i);
+            results.set(index, new ImportResult(index, savedScores.get(i).getFilmId(), null));
+        }
+        feedStorage.saveFeeds(lastScores.values().stream()
+                .map(score -> Feed.builder()
+                        .userId(score.getUserId())
+                        .entityId(score.getFilmId())
+                        .eventType(EventType.SCORE)
+                        .operation(Operation.ADD)
+                        .build())
+                .collect(Collectors.toList()));
+        filmRatingsService.updateRatings(lastScores.values().stream()
+                .map(Score::getFilmId)
+                .collect(Collectors.toSet()));
+        recommendationEngine.saveScores(lastScores.values());
+    }
+
+    private void saveImportBatch(List<Film> films, List<Integer> indexes, List<ImportResult> results) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Integer> filmIds;
+        try {
+            filmIds = filmStorage.saveAll(films);
+        } catch (DataIntegrityViolationException e) {
+            if (films.size() == 1) {
+                results.set(indexes.get(0), new ImportResult(indexes.get(0), null, e.getMessage()));
+            } else {
+                for (int i = 0; i < films.size(); i++) {
+                    saveImportBatch(List.of(films.get(i)), List.of(indexes.get(i)), results);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(filmIds.get(i));
+            film.setRating(0.0);
+            results.set(indexes.get(i), new ImportResult(indexes.get(i), film.getId(), null));
+            popularFilmsIndex.save(film);
+            saveToSearchIndex(film);
+            saveToSuggestIndex(film);
+        }
+    }
+
+    private void saveToSearchIndex(Film film) {
+        filmSearchIndex.saveFilm(film.getId(), film.getName(), findDirectorIds(film));
+    }
+
+    private void saveToSuggestIndex(Film film) {
+        filmSuggestIndex.saveFilm(film.getId(), film.getName(), film.getRating(), findDirectorIds(film));
+    }
+
+    private List<Integer> findDirectorIds(Film film) {
+        return film.getDirectors() == null ? List.of() :
+                film.getDirectors().stream().map(Director::getId).collect(Collectors.toList());
     }
 
     private void saveAdditionalInfo(Film film, int filmId) {
@@ -106,9 +500,13 @@ public class FilmService {
     }
 
     public void removeFilm(int filmId) {
-        findById(filmId);
+        checkExists(filmId);
         log.info("Фильм удален.");
         filmStorage.removeFilm(filmId);
+        popularFilmsIndex.remove(filmId);
+        recommendationEngine.removeFilm(filmId);
+        filmSearchIndex.removeFilm(filmId);
+        filmSuggestIndex.removeFilm(filmId);
     }
 
     public Collection<Film> findCommonFilms(Optional<Integer> userId, Optional<Integer> friendId) {
@@ -117,50 +515,120 @@ public class FilmService {
         if (intUserId == intFriendId) {
             throw new ValidationException("Не допустимый параметр запроса. Пользователь сравнивается сам с собой.");
         }
-        userService.findById(intUserId);
-        userService.findById(intFriendId);
+        userService.checkExists(intUserId);
+        userService.checkExists(intFriendId);
 
-        return filmStorage.findCommonFilms(intUserId, intFriendId).stream().peek(this::findAdditionalInfo)
-                .collect(Collectors.toList());
+        Collection<Film> films = filmStorage.findCommonFilms(intUserId, intFriendId);
+        findAdditionalInfo(films);
+        return films;
     }
 
     public Collection<Film> getRecommendation(int id) {
-        userService.findById(id);
-        Collection<Film> films = filmStorage.getRecommendation(id);
+        return getRecommendation(id, recommendationEngine.getDefaultCount());
+    }
+
+    public Collection<Film> getRecommendation(int id, int count) {
+        userService.checkExists(id);
+        Collection<Film> films;
+        if (count <= 0) {
+            throw new ValidationException("Количество рекомендаций не может быть меньше или равно нулю.");
+        } else if (recommendationEngine.isEnabled()) {
+            films = findByIds(recommendationEngine.findRecommendations(id, count));
+        } else {
+            films = filmStorage.getRecommendation(id).stream().limit(count).collect(Collectors.toList());
+        }
         if (films.isEmpty()) {
             log.info("Рекомендации по указанном пользователю не найдены.");
         } else {
             log.info("Рекомендации по указанном пользователю найдены.");
         }
 
-        return films.stream().peek(this::findAdditionalInfo)
-                .collect(Collectors.toList());
+        findAdditionalInfo(films);
+        return films;
+    }
+
+    public Suggestions suggest(String prefix, Optional<Integer> count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс для подсказок не может быть пустым.");
+        }
+        int intCount = count.orElse(SUGGEST_COUNT);
+        if (intCount <= 0) {
+            throw new ValidationException("Количество подсказок не может быть меньше или равно нулю.");
+        }
+        Suggestions suggestions;
+        if (filmSuggestIndex.isEnabled()) {
+            suggestions = new Suggestions(filmSuggestIndex.suggestFilms(prefix, intCount),
+                    filmSuggestIndex.suggestDirectors(prefix, intCount));
+        } else {
+            suggestions = new Suggestions(filmStorage.suggestByName(prefix, intCount),
+                    directorsService.suggestByName(prefix, intCount));
+        }
+        log.info("Подсказки по префиксу найдены.");
+        return suggestions;
     }
 
     public Collection<Film> searchByFilmAndDirector(String query, String by) {
         Collection<Film> films = null;
-        switch (by) {
-            case "director":
-                films = filmStorage.searchByDirector(query);
-                break;
-            case "title":
-                films = filmStorage.searchByTitle(query);
-                break;
-            case "director,title":
-            case "title,director":
-                films = filmStorage.searchByFilmAndDirector(query);
-                break;
-            default:
-                throw new ValidationException("Недопустимый параметр запроса. Поиск по" + by + " еще не реализован.");
+        if (filmSearchIndex.isEnabled() && popularFilmsIndex.isEnabled()) {
+            checkSearchBy(by);
+            films = findByIds(popularFilmsIndex.rank(filmSearchIndex.search(query, by.contains("title"),
+                    by.contains("director")), Integer.MAX_VALUE, Double.MAX_VALUE, 0));
+        } else if (filmSearchIndex.isEnabled()) {
+            checkSearchBy(by);
+            films = filmStorage.findByIdsOrderByRating(filmSearchIndex.search(query, by.contains("title"),
+                    by.contains("director")));
+        } else {
+            switch (by) {
+                case "director":
+                    films = filmStorage.searchByDirector(query);
+                    break;
+                case "title":
+                    films = filmStorage.searchByTitle(query);
+                    break;
+                case "director,title":
+                case "title,director":
+                    films = filmStorage.searchByFilmAndDirector(query);
+                    break;
+                default:
+                    throw new ValidationException("Недопустимый параметр запроса. Поиск по" + by +
+                            " еще не реализован.");
+            }
         }
         if (films.isEmpty()) {
             log.info("Фильмы не найдены.");
         } else {
             log.info("Фильмы по поиску найдены.");
-            for (Film film : films) {
-                findAdditionalInfo(film);
-            }
+            findAdditionalInfo(films);
         }
         return films;
     }
+
+    public Page<Film> searchByFilmAndDirector(String query, String by, Optional<Integer> limit,
+                                              Optional<String> cursor) {
+        checkSearchBy(by);
+        boolean byTitle = by.contains("title");
+        boolean byDirector = by.contains("director");
+        int pageSize = PageCursor.checkLimit(limit);
+        Optional<PageCursor> after = PageCursor.decode(cursor, "search", 2);
+        double afterRating = after.map(value -> value.getDouble(0)).orElse(Double.MAX_VALUE);
+        int afterId = after.map(value -> value.getInt(1)).orElse(0);
+        List<Film> films;
+        if (filmSearchIndex.isEnabled() && popularFilmsIndex.isEnabled()) {
+            films = findByIds(popularFilmsIndex.rank(filmSearchIndex.search(query, byTitle, byDirector),
+                    pageSize + 1, afterRating, afterId));
+        } else if (filmSearchIndex.isEnabled()) {
+            films = filmStorage.findByIdsOrderByRatingAfter(filmSearchIndex.search(query, byTitle, byDirector),
+                    pageSize + 1, afterRating, afterId);
+        } else {
+            films = filmStorage.searchAfter(query, byTitle, byDirector, pageSize + 1, afterRating, afterId);
+        }
+        log.info("Фильмы по поиску найдены.");
+        return toPage(films, pageSize, film -> PageCursor.encode("search", film.getRating(), film.getId()));
+    }
+
+    private void checkSearchBy(String by) {
+        if (!List.of("title", "director", "director,title", "title,director").contains(by)) {
+            throw new ValidationException("Недопустимый параметр запроса. Поиск по" + by + " еще не реализован.");
+        }
+    }
 }
@@ -8,6 +8,7 @@ import ru.yandex.practicum.filmorate.storage.dao.GenresStorage;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -44,4 +45,8 @@ public class GenresService {
     public List<Genre> findByFilmId(int filmId) {
         return genresStorage.findByFilmId(filmId);
     }
+
+    public Map<Integer, List<Genre>> findByFilmIds(Collection<Integer> filmIds) {
+        return genresStorage.findByFilmIds(filmIds);
+    }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.dao.MpaStorage;
 
 import java.util.Collection;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -34,4 +35,8 @@ public class MpaService {
     public Mpa findByFilmId(int filmId) {
         return mpaStorage.findByFilmId(filmId);
     }
+
+    public Map<Integer, Mpa> findByFilmIds(Collection<Integer> filmIds) {
+        return mpaStorage.findByFilmIds(filmIds);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class PageCursor {
+
+    static final int DEFAULT_LIMIT = 100;
+
+    static final int MAX_LIMIT = 1000;
+
+    private static final String SEPARATOR = "|";
+
+    private final String[] keys;
+
+    private PageCursor(String[] keys) {
+        this.keys = keys;
+    }
+
+    static int checkLimit(Optional<Integer> limit) {
+        int pageSize = limit.orElse(DEFAULT_LIMIT);
+        if (pageSize <= 0 || pageSize > MAX_LIMIT) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_LIMIT + ".");
+        }
+        return pageSize;
+    }
+
+    static Optional<PageCursor> decode(Optional<String> cursor, String endpoint, int size) {
+        return cursor.map(value -> {
+            String[] keys;
+            try {
+                keys = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)
+                        .split("\\" + SEPARATOR, -1);
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Некорректный курсор страницы.");
+            }
+            if (keys.length != size + 1) {
+                throw new ValidationException("Некорректный курсор страницы.");
+            }
+            if (!keys[0].equals(endpoint)) {
+                throw new ValidationException("Курсор страницы выдан для другого запроса.");
+            }
+            return new PageCursor(Arrays.copyOfRange(keys, 1, keys.length));
+        });
+    }
+
+    static String encode(String endpoint, Object... keys) {
+        String value = Stream.concat(Stream.of(endpoint), Arrays.stream(keys).map(String::valueOf))
+                .collect(Collectors.joining(SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static <T> Page<T> toPage(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new Page<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+
+    int getInt(int index) {
+        try {
+            return Integer.parseInt(keys[index]);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор страницы.");
+        }
+    }
+
+    double getDouble(int index) {
+        try {
+            return Double.parseDouble(keys[index]);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор страницы.");
+        }
+    }
+
+    Timestamp getTimestamp(int index) {
+        try {
+            return Timestamp.valueOf(keys[index]);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор страницы.");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ReviewNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.LikeAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.ReviewAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
@@ -12,9 +13,7 @@ import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.dao.ReviewStorage;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Optional;
 
 @Service
@@ -27,8 +26,8 @@ public class ReviewService {
     private final FeedStorage feedStorage;
 
     public Review saveNew(Review review) {
-        filmService.findById(review.getFilmId());
-        userService.findById(review.getUserId());
+        filmService.checkExists(review.getFilmId());
+        userService.checkExists(review.getUserId());
         if (isExists(review)) {
             log.info("Такой отзыв уже существует.");
             throw new ReviewAlreadyExistsException("Такой отзыв уже существует.");
@@ -42,7 +41,7 @@ public class ReviewService {
     }
 
     public Review update(Review review) {
-        findById(review.getReviewId());
+        checkExists(review.getReviewId());
         int id = reviewStorage.update(review);
         log.info("Отзыв обновлен.");
         Review updatedReviews = reviewStorage.findById(id);
@@ -66,28 +65,48 @@ public class ReviewService {
         return review;
     }
 
+    public void checkExists(int reviewId) {
+        if (!reviewStorage.exists(reviewId)) {
+            throw new ReviewNotFoundException("Отзыв c ID " + reviewId + " не найден.");
+        }
+    }
+
+    public void rebuildReviewIds() {
+        reviewStorage.rebuildIds();
+    }
+
     public Collection<Review> findAll(int count) {
-        if (count <= 0) {
-            throw new ValidationException("Значение выводимых отзывов не может быть меньше или равно нулю.");
+        return findAll(count, Optional.empty(), Optional.empty());
+    }
+
+    public Collection<Review> findAll(int count, Optional<Integer> afterUseful, Optional<Integer> afterId) {
+        checkPage(count, afterUseful, afterId);
+        log.info("Отзывы найдены.");
+        if (afterUseful.isPresent()) {
+            return reviewStorage.findAllAfter(count, afterUseful.get(), afterId.get());
         }
-        ArrayList<Review> reviews = new ArrayList<>(reviewStorage.findAll(count));
-        reviews.sort(Comparator.comparing(Review::getUseful).reversed().thenComparing(Review::getReviewId));
-        return reviews;
+        return reviewStorage.findAll(count);
     }
 
     public Collection<Review> findByFilmId(int filmId, int count) {
-        if (count <= 0) {
-            throw new ValidationException("Значение выводимых отзывов не может быть меньше или равно нулю.");
-        }
-        filmService.findById(filmId);
+        return findByFilmId(filmId, count, Optional.empty(), Optional.empty());
+    }
+
+    public Collection<Review> findByFilmId(int filmId, int count, Optional<Integer> afterUseful,
+                                           Optional<Integer> afterId) {
+        checkPage(count, afterUseful, afterId);
+        filmService.checkExists(filmId);
 
         log.info("Отзывы найдены.");
+        if (afterUseful.isPresent()) {
+            return reviewStorage.findByFilmIdAfter(filmId, count, afterUseful.get(), afterId.get());
+        }
         return reviewStorage.findByFilmId(filmId, count);
     }
 
     public void saveLike(int userId, int reviewId, Optional<String> like) {
-        userService.findById(userId);
-        findById(reviewId);
+        userService.checkExists(userId);
+        checkExists(reviewId);
         String strLike = like.orElseThrow(() -> new ValidationException("Ошибка в виде оценке отзыва."));
         if (Boolean.TRUE.equals(reviewStorage.isLikeExists(userId, reviewId))) {
             throw new LikeAlreadyExistsException("Оценка отзыву уже поставлена.");
@@ -107,8 +126,8 @@ public class ReviewService {
     }
 
     public void removeLike(int userId, int reviewId, Optional<String> like) {
-        userService.findById(userId);
-        findById(reviewId);
+        userService.checkExists(userId);
+        checkExists(reviewId);
         String strLike = like.orElseThrow(() ->
                 new ValidationException("Ошибка в форме запроса на удаление лайука у отзыва."));
         if (!(strLike.equals("like") || strLike.equals("dislike"))) {
@@ -122,8 +141,8 @@ public class ReviewService {
     }
 
     public void removeDislike(int userId, int reviewId) {
-        userService.findById(userId);
-        findById(reviewId);
+        userService.checkExists(userId);
+        checkExists(reviewId);
         if (Boolean.FALSE.equals(reviewStorage.isDislikeExists(userId, reviewId))) {
             throw new LikeAlreadyExistsException("У отзыва отсутствует отрицательная оценка от пользователя.");
         }
@@ -135,4 +154,13 @@ public class ReviewService {
     public boolean isExists(Review review) {
         return reviewStorage.isExists(review);
     }
+
+    private void checkPage(int count, Optional<Integer> afterUseful, Optional<Integer> afterId) {
+        if (count <= 0) {
+            throw new ValidationException("Значение выводимых отзывов не может быть меньше или равно нулю.");
+        }
+        if (afterUseful.isPresent() != afterId.isPresent()) {
+            throw new ValidationException("Параметры afterUseful и afterId должны указываться вместе.");
+        }
+    }
 }
\ No newline at end of file
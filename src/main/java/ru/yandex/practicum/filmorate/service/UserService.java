@@ -3,20 +3,48 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.FriendAlreadyExistException;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.index.RecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.index.TimelineIndex;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
 
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int DEFAULT_SUGGESTIONS_COUNT = 10;
+    private static final int TIMELINE_REPLAY_OVERLAP = 1000;
+    private static final Timestamp TIMELINE_END = Timestamp.valueOf("9999-12-31 00:00:00");
+
     private final UserStorage userStorage;
     private final FeedStorage feedStorage;
+    private final FilmStorage filmStorage;
+    private final FilmRatingsService filmRatingsService;
+    private final RecommendationEngine recommendationEngine;
+    private final TimelineIndex timelineIndex;
+    private final FriendshipGraph friendshipGraph;
 
     public User saveNew(User user) {
         checkName(user);
@@ -31,58 +59,224 @@ public class UserService {
         return userStorage.findAll();
     }
 
+    public Page<User> findAll(Optional<Integer> limit, Optional<String> cursor) {
+        int pageSize = PageCursor.checkLimit(limit);
+        int afterId = PageCursor.decode(cursor, "users", 1).map(after -> after.getInt(0)).orElse(0);
+        return PageCursor.toPage(userStorage.findAllAfter(pageSize + 1, afterId), pageSize,
+                user -> PageCursor.encode("users", user.getId()));
+    }
+
+    public void streamAll(Consumer<User> consumer) {
+        userStorage.findAll(STREAM_BATCH_SIZE, users -> users.forEach(consumer));
+    }
+
     public User findById(int userId) {
         User user;
         user = userStorage.findById(userId);
         return user;
     }
 
+    public void checkExists(int userId) {
+        if (!userStorage.exists(userId)) {
+            throw new UserNotFoundException("Пользователь c ID " + userId + " не найден.");
+        }
+    }
+
+    public Set<Integer> findMissingIds(Collection<Integer> userIds) {
+        return userStorage.existsAll(userIds);
+    }
+
+    public void rebuildUserIds() {
+        userStorage.rebuildIds();
+    }
+
     public void saveFriend(int userId, int friendId) {
-        findById(userId);
-        findById(friendId);
-        if (userStorage.findFriends(userId).contains(userStorage.findById(friendId))) {
+        checkExists(userId);
+        checkExists(friendId);
+        if (hasFriend(userId, friendId)) {
             throw new FriendAlreadyExistException("Пользователь с ID " + userId +
                     " уже добавил в друзья пользователя c ID " + friendId);
         } else {
             log.info("Друг добавлен.");
             userStorage.saveFriend(userId, friendId);
+            friendshipGraph.saveFriend(userId, friendId);
+            timelineIndex.saveFriend(userId, friendId);
+            timelineIndex.backfill(userId, feedStorage.findFeedBefore(friendId, timelineIndex.getCapacity(),
+                    TIMELINE_END, Integer.MAX_VALUE));
             feedStorage.saveFeed(userId, friendId, EventType.FRIEND.getEventTypeId(), Operation.ADD.getOperationId());
         }
     }
 
     public void removeFriend(int userId, int friendId) {
-        findById(userId);
-        findById(friendId);
-        if (!userStorage.findFriends(userId).contains(findById(friendId))) {
+        checkExists(userId);
+        checkExists(friendId);
+        if (!hasFriend(userId, friendId)) {
             throw new FriendAlreadyExistException("Пользователь с ID " + userId +
                     " не имеет в друзьях пользователя c ID " + friendId);
         } else {
             log.info("Друг удален.");
             userStorage.removeFriend(userId, friendId);
+            friendshipGraph.removeFriend(userId, friendId);
+            timelineIndex.removeFriend(userId, friendId);
             feedStorage.saveFeed(userId, friendId, EventType.FRIEND.getEventTypeId(), Operation.REMOVE.getOperationId());
         }
     }
 
     public Collection<User> findFriends(int userId) {
-        findById(userId);
+        checkExists(userId);
+        if (friendshipGraph.isEnabled()) {
+            return userStorage.findByIds(friendshipGraph.findFriendIds(userId));
+        }
         return userStorage.findFriends(userId);
     }
 
+    public Page<User> findFriends(int userId, Optional<Integer> limit, Optional<String> cursor) {
+        checkExists(userId);
+        int pageSize = PageCursor.checkLimit(limit);
+        int afterId = PageCursor.decode(cursor, "friends", 1).map(after -> after.getInt(0)).orElse(0);
+        return PageCursor.toPage(userStorage.findFriendsAfter(userId, pageSize + 1, afterId), pageSize,
+                user -> PageCursor.encode("friends", user.getId()));
+    }
+
     public Collection<User> findCommonFriends(int userId, int otherUserId) {
-        findById(userId);
-        findById(otherUserId);
+        checkExists(userId);
+        checkExists(otherUserId);
+        if (friendshipGraph.isEnabled()) {
+            return userStorage.findByIds(friendshipGraph.findCommonFriendIds(userId, otherUserId));
+        }
         return userStorage.findCommonFriends(userId, otherUserId);
     }
 
+    public Collection<User> findFriendSuggestions(int userId, Optional<Integer> count) {
+        checkExists(userId);
+        int suggestionsCount = count.orElse(DEFAULT_SUGGESTIONS_COUNT);
+        if (suggestionsCount <= 0) {
+            throw new ValidationException("Количество предложений друзей не может быть меньше или равно нулю.");
+        }
+        int[] suggestedIds;
+        if (friendshipGraph.isEnabled()) {
+            suggestedIds = friendshipGraph.findSuggestions(userId, suggestionsCount);
+        } else {
+            suggestedIds = friendshipGraph.findSuggestions(userId, suggestionsCount,
+                    toIds(userStorage.findFriends(userId)), friendId -> toIds(userStorage.findFriends(friendId)));
+        }
+        Map<Integer, User> users = userStorage.findByIds(suggestedIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(suggestedIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     public Collection<Feed> findFeed(int userId) {
-        findById(userId);
+        checkExists(userId);
         return feedStorage.findFeed(userId);
     }
 
+    public Page<Feed> findFeed(int userId, Optional<Integer> limit, Optional<String> cursor) {
+        checkExists(userId);
+        int pageSize = PageCursor.checkLimit(limit);
+        Optional<PageCursor> after = PageCursor.decode(cursor, "feed", 2);
+        Timestamp afterTimestamp = after.map(value -> value.getTimestamp(0)).orElse(new Timestamp(0));
+        int afterEventId = after.map(value -> value.getInt(1)).orElse(0);
+        return PageCursor.toPage(feedStorage.findFeedAfter(userId, pageSize + 1, afterTimestamp, afterEventId),
+                pageSize, feed -> PageCursor.encode("feed", feed.getTimestamp(), feed.getEventId()));
+    }
+
+    public List<Feed> findFeedAfterEventId(int userId, int limit, int afterEventId) {
+        return feedStorage.findFeedAfterEventId(userId, limit, afterEventId);
+    }
+
+    public Page<Feed> findTimeline(int userId, Optional<Integer> limit, Optional<String> cursor) {
+        checkExists(userId);
+        int pageSize = PageCursor.checkLimit(limit);
+        Optional<PageCursor> before = PageCursor.decode(cursor, "timeline", 2);
+        Timestamp beforeTimestamp = before.map(value -> value.getTimestamp(0)).orElse(TIMELINE_END);
+        int beforeEventId = before.map(value -> value.getInt(1)).orElse(Integer.MAX_VALUE);
+        List<Feed> feeds = new ArrayList<>();
+        Collection<Integer> pulledAuthors;
+        Optional<Feed> oldest = Optional.empty();
+        if (timelineIndex.isEnabled()) {
+            TimelineIndex.Slice slice = timelineIndex.findTimeline(userId, pageSize + 1, beforeTimestamp, beforeEventId);
+            feeds.addAll(slice.getFeeds());
+            pulledAuthors = slice.getPulledAuthors();
+            oldest = Optional.ofNullable(slice.getOldest());
+        } else {
+            pulledAuthors = userStorage.findFriends(userId).stream().map(User::getId).collect(Collectors.toList());
+        }
+        for (int authorId : pulledAuthors) {
+            feeds.addAll(feedStorage.findFeedBefore(authorId, pageSize + 1, beforeTimestamp, beforeEventId));
+        }
+        Comparator<Feed> newestFirst = Comparator.comparing(Feed::getTimestamp).thenComparing(Feed::getEventId).reversed();
+        Optional<Feed> timelineStart = oldest;
+        List<Feed> rows = feeds.stream()
+                .filter(feed -> timelineStart.isEmpty() || newestFirst.compare(feed, timelineStart.get()) <= 0)
+                .collect(Collectors.toMap(feed -> List.of(feed.getEventId(), feed.getTimestamp(), feed.getUserId()),
+                        Function.identity(), (first, second) -> first))
+                .values().stream()
+                .sorted(newestFirst)
+                .limit(pageSize + 1)
+                .collect(Collectors.toList());
+        return PageCursor.toPage(rows, pageSize, feed -> PageCursor.encode("timeline", feed.getTimestamp(),
+                feed.getEventId()));
+    }
+
+    public void rebuildFriendshipGraph() {
+        if (!friendshipGraph.isEnabled()) {
+            return;
+        }
+        friendshipGraph.rebuild(graph -> userStorage.findAllFriendships(graph::saveFriend));
+        log.info("Граф дружбы загружен.");
+    }
+
+    public void rebuildTimelineIndex() {
+        if (!timelineIndex.isEnabled()) {
+            return;
+        }
+        int[] fromEventId = new int[1];
+        timelineIndex.rebuild(index -> {
+            int snapshotEventId = index.loadSnapshot();
+            if (snapshotEventId >= feedStorage.findNextEventId()) {
+                log.warn("Снимок лент друзей с событием {} не соответствует базе данных и отброшен.", snapshotEventId);
+                index.clear();
+                snapshotEventId = 0;
+            }
+            userStorage.findAllFriendships(index::saveFriend);
+            fromEventId[0] = Math.max(0, Math.max(snapshotEventId - TIMELINE_REPLAY_OVERLAP,
+                    feedStorage.findLastEventId() - index.getReplayLimit()));
+            List<Feed> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+            feedStorage.findAfterEventId(fromEventId[0], feed -> {
+                batch.add(feed);
+                if (batch.size() == STREAM_BATCH_SIZE) {
+                    index.saveFeeds(batch);
+                    batch.clear();
+                }
+            });
+            index.saveFeeds(batch);
+        });
+        log.info("Ленты друзей загружены, события восстановлены начиная с {}.", fromEventId[0]);
+    }
+
     public void removeUser(int userId) {
-        findById(userId);
+        checkExists(userId);
         log.info("Пользователь удален.");
+        List<Integer> scoredFilmIds = filmStorage.findScoredFilmIds(userId);
         userStorage.removeUser(userId);
+        filmRatingsService.updateRatings(scoredFilmIds);
+        recommendationEngine.removeUser(userId);
+        friendshipGraph.removeUser(userId);
+        timelineIndex.removeUser(userId);
+    }
+
+    private boolean hasFriend(int userId, int friendId) {
+        if (friendshipGraph.isEnabled()) {
+            return friendshipGraph.isFriend(userId, friendId);
+        }
+        return userStorage.findFriends(userId).contains(userStorage.findById(friendId));
+    }
+
+    private static int[] toIds(Collection<User> users) {
+        return users.stream().mapToInt(User::getId).sorted().toArray();
     }
 
     private void checkName(User user) {
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.storage.dao;
 
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface DirectorStorage {
     Integer saveNew(Director director);
@@ -14,12 +17,22 @@ public interface DirectorStorage {
 
     Director findById(int id);
 
+    boolean exists(int directorId);
+
+    Set<Integer> existsAll(Collection<Integer> directorIds);
+
+    void rebuildIds();
+
     void removeById(int id);
 
     List<Director> findByFilmId(int filmId);
 
+    Map<Integer, List<Director>> findByFilmIds(Collection<Integer> filmIds);
+
     void save(List<Director> directors, int filmId);
 
     void removeFromFilmByFilmID(int filmId);
 
+    List<Suggestion> suggestByName(String prefix, int count);
+
 }
\ No newline at end of file
@@ -2,11 +2,34 @@ package ru.yandex.practicum.filmorate.storage.dao;
 
 import ru.yandex.practicum.filmorate.model.Feed;
 
+import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FeedStorage {
 
     void saveFeed(int userId, int entityId, int eventTypeId, int operationId);
 
+    void saveFeeds(List<Feed> feeds);
+
     Collection<Feed> findFeed(int userId);
+
+    List<Feed> findFeedAfter(int userId, int limit, Timestamp afterTimestamp, int afterEventId);
+
+    List<Feed> findFeedBefore(int userId, int limit, Timestamp beforeTimestamp, int beforeEventId);
+
+    List<Feed> findFeedAfterEventId(int userId, int limit, int afterEventId);
+
+    int findLastEventId();
+
+    int findNextEventId();
+
+    void findAfterEventId(int eventId, Consumer<Feed> consumer);
+
+    List<Integer> findMonthsBefore(int month);
+
+    void findByMonth(int month, Consumer<Feed> consumer);
+
+    int removeByMonth(int month, int lastEventId);
 }
@@ -1,9 +1,15 @@
 package ru.yandex.practicum.filmorate.storage.dao;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Score;
 import ru.yandex.practicum.filmorate.model.SortType;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
@@ -11,10 +17,18 @@ public interface FilmStorage {
 
     Integer update(Film film);
 
+    List<Integer> saveAll(List<Film> films);
+
     Collection<Film> findAll();
 
+    void findAll(int batchSize, Consumer<List<Film>> consumer);
+
+    List<Film> findAllAfter(int limit, int afterId);
+
     Film findById(int filmId);
 
+    Collection<Film> findByIds(Collection<Integer> filmIds);
+
     Collection<Film> findPopular(int count);
 
     Collection<Film> findPopularByGenreAndYear(int count, int genreId, int year);
@@ -29,18 +43,50 @@ public interface FilmStorage {
 
     void saveScore(int filmId, int userId, int score);
 
+    void saveScores(List<Score> scores);
+
+    Set<Integer> findExistingIds(Collection<Integer> filmIds);
+
+    boolean exists(int filmId);
+
+    Set<Integer> existsAll(Collection<Integer> filmIds);
+
+    void rebuildIds();
+
     void removeScore(int filmId, int userId);
 
+    List<Integer> findScoredFilmIds(int userId);
+
     Double findRating(int filmId);
 
+    Map<Integer, Double> findRatingsByFilmIds(Collection<Integer> filmIds);
+
+    List<Integer> findRatingStatsDrift();
+
+    void rebuildRatingStats();
+
     Collection<Film> findCommonFilms(int userId, int friendId);
 
     Collection<Film> getRecommendation(int id);
 
+    List<Score> findAllScores();
+
     Collection<Film> searchByFilmAndDirector(String query);
 
     Collection<Film> searchByTitle(String query);
 
     Collection<Film> searchByDirector(String query);
 
+    List<Film> findByIdsOrderByRating(Collection<Integer> filmIds);
+
+    List<Suggestion> suggestByName(String prefix, int count);
+
+    List<Film> findByIdsOrderByRatingAfter(Collection<Integer> filmIds, int limit, double afterRating, int afterId);
+
+    List<Film> searchAfter(String query, boolean byTitle, boolean byDirector, int limit, double afterRating, int afterId);
+
+    List<Film> findByDirectorIdByYearAfter(int directorId, int limit, int afterYear, int afterId);
+
+    List<Film> findByDirectorIdByRatingAfter(int directorId, int limit, double afterRating, int afterId);
+
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+public interface FriendshipStatusStorage {
+
+    Integer findIdByName(String statusName);
+}
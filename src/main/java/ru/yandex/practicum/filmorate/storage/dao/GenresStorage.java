@@ -4,6 +4,7 @@ import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface GenresStorage {
 
@@ -13,6 +14,8 @@ public interface GenresStorage {
 
     List<Genre> findByFilmId(int filmId);
 
+    Map<Integer, List<Genre>> findByFilmIds(Collection<Integer> filmIds);
+
     Collection<Genre> findAll();
 
     Genre findById(int genreId);
@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.storage.dao;
 
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface MpaStorage {
 
@@ -11,4 +13,6 @@ public interface MpaStorage {
     Mpa findById(int ratingId);
 
     Mpa findByFilmId(int filmId);
+
+    Map<Integer, Mpa> findByFilmIds(Collection<Integer> filmIds);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage.dao;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.util.Collection;
+import java.util.Set;
 
 public interface ReviewStorage {
 
@@ -14,10 +15,20 @@ public interface ReviewStorage {
 
     Review findById(int reviewId);
 
+    boolean exists(int reviewId);
+
+    Set<Integer> existsAll(Collection<Integer> reviewIds);
+
+    void rebuildIds();
+
     Collection<Review> findAll(int count);
 
+    Collection<Review> findAllAfter(int count, int afterUseful, int afterId);
+
     Collection<Review> findByFilmId(int filmId, int count);
 
+    Collection<Review> findByFilmIdAfter(int filmId, int count, int afterUseful, int afterId);
+
     void saveLike(int userId, int reviewId, int like);
 
     void removeLike(int userId, int reviewId);
@@ -3,6 +3,10 @@ package ru.yandex.practicum.filmorate.storage.dao;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
@@ -12,14 +16,32 @@ public interface UserStorage {
 
     Collection<User> findAll();
 
+    void findAll(int batchSize, Consumer<List<User>> consumer);
+
+    List<User> findAllAfter(int limit, int afterId);
+
     User findById(int userId);
 
+    List<User> findByIds(int[] userIds);
+
+    Set<Integer> findExistingIds(Collection<Integer> userIds);
+
+    boolean exists(int userId);
+
+    Set<Integer> existsAll(Collection<Integer> userIds);
+
+    void rebuildIds();
+
+    void findAllFriendships(BiConsumer<Integer, Integer> consumer);
+
     void saveFriend(int userId, int friendId);
 
     void removeFriend(int userId, int friendId);
 
     Collection<User> findFriends(int userId);
 
+    List<User> findFriendsAfter(int userId, int limit, int afterId);
+
     Collection<User> findCommonFriends(int user1Id, int user2Id);
 
     void removeUser(int userId);
@@ -2,22 +2,32 @@ package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.DirectorNotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.storage.dao.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmaps;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor
@@ -26,6 +36,8 @@ public class DirectorDbStorage implements DirectorStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
+    private final IdBitmaps idBitmaps;
+
     @Override
     public Integer saveNew(Director director) {
         String sqlQuery = "INSERT INTO DIRECTORS (DIRECTOR_NAME) values (?)";
@@ -39,11 +51,13 @@ public class DirectorDbStorage implements DirectorStorage {
         }, keyHolder);
 
         Optional<Integer> directorId = Optional.of(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        idBitmaps.getDirectors().add(directorId.get());
 
         return directorId.get();
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.DIRECTORS, key = "#director.id")
     public Integer update(Director director) {
         String sqlQuery = "UPDATE DIRECTORS SET " +
                 "DIRECTOR_NAME = ?" +
@@ -54,6 +68,17 @@ public class DirectorDbStorage implements DirectorStorage {
         return director.getId();
     }
 
+    @Override
+    public List<Suggestion> suggestByName(String prefix, int count) {
+        String sqlQuery = "SELECT D.DIRECTOR_ID, D.DIRECTOR_NAME FROM DIRECTORS AS D " +
+                "LEFT OUTER JOIN FILM_DIRECTOR AS FD ON D.DIRECTOR_ID = FD.DIRECTOR_ID " +
+                "WHERE LOCATE(CONCAT(' ', UPPER(?)), CONCAT(' ', UPPER(D.DIRECTOR_NAME))) > 0 " +
+                "GROUP BY D.DIRECTOR_ID, D.DIRECTOR_NAME " +
+                "ORDER BY COUNT(FD.FILM_ID) DESC, D.DIRECTOR_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
+                new Suggestion(rs.getInt("DIRECTOR_ID"), rs.getString("DIRECTOR_NAME")), prefix, count);
+    }
+
     @Override
     public Collection<Director> findAll() {
         String sqlQuery = "SELECT * FROM DIRECTORS";
@@ -61,6 +86,7 @@ public class DirectorDbStorage implements DirectorStorage {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.DIRECTORS)
     public Director findById(int id) {
         String sqlQuery = "SELECT * FROM DIRECTORS WHERE DIRECTOR_ID = ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToDirector, id).stream().findFirst()
@@ -68,9 +94,42 @@ public class DirectorDbStorage implements DirectorStorage {
     }
 
     @Override
+    public boolean exists(int directorId) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getDirectors().contains(directorId);
+        }
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM DIRECTORS WHERE DIRECTOR_ID = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, directorId));
+    }
+
+    @Override
+    public Set<Integer> existsAll(Collection<Integer> directorIds) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getDirectors().findMissing(directorIds);
+        }
+        Set<Integer> missingIds = new LinkedHashSet<>(directorIds);
+        if (!missingIds.isEmpty()) {
+            String sqlQuery = "SELECT DIRECTOR_ID FROM DIRECTORS WHERE DIRECTOR_ID = ANY(?)";
+            missingIds.removeAll(jdbcTemplate.queryForList(sqlQuery, Integer.class,
+                    (Object) directorIds.toArray(new Integer[0])));
+        }
+        return missingIds;
+    }
+
+    @Override
+    public void rebuildIds() {
+        String sqlQuery = "SELECT DIRECTOR_ID FROM DIRECTORS";
+        idBitmaps.getDirectors().rebuild(ids -> jdbcTemplate.query(sqlQuery, resultSet -> {
+            ids.accept(resultSet.getInt("DIRECTOR_ID"));
+        }));
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.DIRECTORS)
     public void removeById(int id) {
         String sqlQuery = "DELETE FROM DIRECTORS WHERE director_id = ?";
         jdbcTemplate.update(sqlQuery, id);
+        idBitmaps.getDirectors().remove(id);
     }
 
     @Override
@@ -80,6 +139,22 @@ public class DirectorDbStorage implements DirectorStorage {
         return jdbcTemplate.query(sqlQuery, this::mapRowToDirector, filmId);
     }
 
+    @Override
+    public Map<Integer, List<Director>> findByFilmIds(Collection<Integer> filmIds) {
+        Map<Integer, List<Director>> directors = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return directors;
+        }
+        String sqlQuery = "SELECT FD.FILM_ID, FD.DIRECTOR_ID, D2.DIRECTOR_NAME FROM TABLE(ID INT = ?) AS T " +
+                "JOIN FILM_DIRECTOR AS FD ON FD.FILM_ID = T.ID JOIN DIRECTORS D2 on D2.DIRECTOR_ID = FD.DIRECTOR_ID " +
+                "ORDER BY FD.FILM_ID, FD.DIRECTOR_ID";
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+            directors.computeIfAbsent(resultSet.getInt("film_id"), filmId -> new ArrayList<>())
+                    .add(mapRowToDirector(resultSet, 0));
+        }, (Object) filmIds.stream().distinct().toArray(Integer[]::new));
+        return directors;
+    }
+
     @Override
     public void save(List<Director> directors, int filmId) {
         String sqlQueryForGenres = "MERGE INTO FILM_DIRECTOR (film_id, DIRECTOR_ID) VALUES (?, ?)";
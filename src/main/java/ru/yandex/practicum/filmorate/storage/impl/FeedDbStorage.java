@@ -1,27 +1,84 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.FeedsSavedEvent;
 import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 @Repository
-@RequiredArgsConstructor
 public class FeedDbStorage implements FeedStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int retentionMonths;
+
+    public FeedDbStorage(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                         @Value("${filmorate.feed.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.retentionMonths = retentionMonths;
+    }
 
     @Override
     public void saveFeed(int userId, int entityId, int eventTypeId, int operationId) {
+        saveFeeds(List.of(Feed.builder()
+                .userId(userId)
+                .entityId(entityId)
+                .eventType(EventType.findById(eventTypeId))
+                .operation(Operation.findById(operationId))
+                .build()));
+    }
+
+    @Override
+    @Transactional
+    public void saveFeeds(List<Feed> feeds) {
         String sql = "INSERT INTO FEEDS (TIMESTAMP, USER_ID, ENTITY_ID, EVENT_TYPE_ID, OPERATION_ID)\n" +
-                "VALUES (NOW(), ?, ?, ?, ?)";
-        jdbcTemplate.update(sql, userId, entityId, eventTypeId, operationId);
+                "VALUES (?, ?, ?, ?, ?)";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Feed> savedFeeds = jdbcTemplate.execute(connection -> connection.prepareStatement(sql, new String[]{"event_id"}),
+                (PreparedStatementCallback<List<Feed>>) stmt -> {
+                    for (Feed feed : feeds) {
+                        stmt.setTimestamp(1, feed.getTimestamp() != null ? feed.getTimestamp() : now);
+                        stmt.setInt(2, feed.getUserId());
+                        stmt.setInt(3, feed.getEntityId());
+                        stmt.setInt(4, feed.getEventType().getEventTypeId());
+                        stmt.setInt(5, feed.getOperation().getOperationId());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    List<Feed> saved = new ArrayList<>(feeds.size());
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        for (Feed feed : feeds) {
+                            keys.next();
+                            saved.add(Feed.builder()
+                                    .eventId(keys.getInt(1))
+                                    .timestamp(feed.getTimestamp() != null ? feed.getTimestamp() : now)
+                                    .userId(feed.getUserId())
+                                    .entityId(feed.getEntityId())
+                                    .eventType(feed.getEventType())
+                                    .operation(feed.getOperation())
+                                    .build());
+                        }
+                    }
+                    return saved;
+                });
+        eventPublisher.publishEvent(new FeedsSavedEvent(savedFeeds));
     }
 
     @Override
@@ -29,9 +86,100 @@ public class FeedDbStorage implements FeedStorage {
         String sql = "SELECT * FROM FEEDS F " +
                 "LEFT JOIN EVENT_TYPE AS ET ON F.EVENT_TYPE_ID = ET.EVENT_TYPE_ID " +
                 "LEFT JOIN OPERATION_FOR_FEEDS AS OFF ON F.OPERATION_ID = OFF.OPERATION_ID " +
-                "WHERE USER_ID = ? " +
-                "ORDER BY F.TIMESTAMP";
-        return jdbcTemplate.query(sql, this::mapRowToFeed, userId);
+                "WHERE USER_ID = ? AND F.TIMESTAMP >= ? " +
+                "ORDER BY F.TIMESTAMP, F.EVENT_ID";
+        return jdbcTemplate.query(sql, this::mapRowToFeed, userId, findRetentionStart());
+    }
+
+    @Override
+    public List<Feed> findFeedAfter(int userId, int limit, Timestamp afterTimestamp, int afterEventId) {
+        String sql = "SELECT * FROM FEEDS F " +
+                "LEFT JOIN EVENT_TYPE AS ET ON F.EVENT_TYPE_ID = ET.EVENT_TYPE_ID " +
+                "LEFT JOIN OPERATION_FOR_FEEDS AS OFF ON F.OPERATION_ID = OFF.OPERATION_ID " +
+                "WHERE USER_ID = ? AND F.TIMESTAMP >= ? AND (F.TIMESTAMP > ? OR F.EVENT_ID > ?) " +
+                "ORDER BY F.TIMESTAMP, F.EVENT_ID LIMIT ?";
+        Timestamp retentionStart = findRetentionStart();
+        return jdbcTemplate.query(sql, this::mapRowToFeed, userId,
+                afterTimestamp.before(retentionStart) ? retentionStart : afterTimestamp,
+                afterTimestamp, afterEventId, limit);
+    }
+
+    @Override
+    public List<Feed> findFeedBefore(int userId, int limit, Timestamp beforeTimestamp, int beforeEventId) {
+        String sql = "SELECT * FROM FEEDS F " +
+                "LEFT JOIN EVENT_TYPE AS ET ON F.EVENT_TYPE_ID = ET.EVENT_TYPE_ID " +
+                "LEFT JOIN OPERATION_FOR_FEEDS AS OFF ON F.OPERATION_ID = OFF.OPERATION_ID " +
+                "WHERE USER_ID = ? AND F.TIMESTAMP >= ? AND F.TIMESTAMP <= ? " +
+                "AND (F.TIMESTAMP < ? OR F.EVENT_ID < ?) " +
+                "ORDER BY F.TIMESTAMP DESC, F.EVENT_ID DESC LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRowToFeed, userId, findRetentionStart(), beforeTimestamp,
+                beforeTimestamp, beforeEventId, limit);
+    }
+
+    @Override
+    public List<Feed> findFeedAfterEventId(int userId, int limit, int afterEventId) {
+        String sql = "SELECT * FROM FEEDS F " +
+                "LEFT JOIN EVENT_TYPE AS ET ON F.EVENT_TYPE_ID = ET.EVENT_TYPE_ID " +
+                "LEFT JOIN OPERATION_FOR_FEEDS AS OFF ON F.OPERATION_ID = OFF.OPERATION_ID " +
+                "WHERE USER_ID = ? AND F.EVENT_ID > ? AND F.TIMESTAMP >= ? " +
+                "ORDER BY F.EVENT_ID LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRowToFeed, userId, afterEventId, findRetentionStart(), limit);
+    }
+
+    @Override
+    public int findLastEventId() {
+        String sql = "SELECT COALESCE(MAX(EVENT_ID), 0) FROM FEEDS";
+        return Objects.requireNonNull(jdbcTemplate.queryForObject(sql, Integer.class));
+    }
+
+    @Override
+    public int findNextEventId() {
+        String sql = "SELECT IDENTITY_BASE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = 'FEEDS' AND COLUMN_NAME = 'EVENT_ID'";
+        return Objects.requireNonNull(jdbcTemplate.queryForObject(sql, Integer.class));
+    }
+
+    @Override
+    public void findAfterEventId(int eventId, Consumer<Feed> consumer) {
+        String sql = "SELECT * FROM FEEDS F " +
+                "LEFT JOIN EVENT_TYPE AS ET ON F.EVENT_TYPE_ID = ET.EVENT_TYPE_ID " +
+                "LEFT JOIN OPERATION_FOR_FEEDS AS OFF ON F.OPERATION_ID = OFF.OPERATION_ID " +
+                "WHERE F.EVENT_ID > ? AND F.TIMESTAMP >= ? " +
+                "ORDER BY F.EVENT_ID";
+        jdbcTemplate.query(sql, resultSet -> {
+            consumer.accept(mapRowToFeed(resultSet, resultSet.getRow()));
+        }, eventId, findRetentionStart());
+    }
+
+    @Override
+    public List<Integer> findMonthsBefore(int month) {
+        String sql = "SELECT DISTINCT FEED_MONTH FROM FEEDS WHERE FEED_MONTH < ? ORDER BY FEED_MONTH";
+        return jdbcTemplate.queryForList(sql, Integer.class, month);
+    }
+
+    @Override
+    public void findByMonth(int month, Consumer<Feed> consumer) {
+        String sql = "SELECT * FROM FEEDS F " +
+                "LEFT JOIN EVENT_TYPE AS ET ON F.EVENT_TYPE_ID = ET.EVENT_TYPE_ID " +
+                "LEFT JOIN OPERATION_FOR_FEEDS AS OFF ON F.OPERATION_ID = OFF.OPERATION_ID " +
+                "WHERE F.FEED_MONTH = ? " +
+                "ORDER BY F.EVENT_ID";
+        jdbcTemplate.query(sql, resultSet -> {
+            consumer.accept(mapRowToFeed(resultSet, resultSet.getRow()));
+        }, month);
+    }
+
+    @Override
+    public int removeByMonth(int month, int lastEventId) {
+        String sql = "DELETE FROM FEEDS WHERE FEED_MONTH = ? AND EVENT_ID <= ?";
+        return jdbcTemplate.update(sql, month, lastEventId);
+    }
+
+    private Timestamp findRetentionStart() {
+        if (retentionMonths <= 0) {
+            return new Timestamp(0);
+        }
+        return Timestamp.valueOf(YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay());
     }
 
     private Feed mapRowToFeed(ResultSet rs, int rowNum) throws SQLException {
@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Repository
+@Primary
+@Slf4j
+public class FeedQueueStorage implements FeedStorage {
+
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+
+    private final FeedDbStorage feedDbStorage;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<QueuedFeed> queue;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean running;
+    private Thread writer;
+
+    public FeedQueueStorage(FeedDbStorage feedDbStorage,
+                            @Value("${filmorate.feed-queue.enabled:false}") boolean enabled,
+                            @Value("${filmorate.feed-queue.capacity:10000}") int capacity,
+                            @Value("${filmorate.feed-queue.batch-size:500}") int batchSize,
+                            @Value("${filmorate.feed-queue.flush-interval-ms:50}") long flushIntervalMs,
+                            @Value("${filmorate.feed-queue.offer-timeout-ms:1000}") long offerTimeoutMs) {
+        this.feedDbStorage = feedDbStorage;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "feed-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<QueuedFeed> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        writer = null;
+        writeNow(rest.stream().map(QueuedFeed::getFeed).filter(Objects::nonNull).collect(Collectors.toList()));
+        rest.stream().map(QueuedFeed::getBarrier).filter(Objects::nonNull).forEach(CountDownLatch::countDown);
+        log.info("Очередь событий ленты остановлена.");
+    }
+
+    @Override
+    public void saveFeed(int userId, int entityId, int eventTypeId, int operationId) {
+        if (!enabled) {
+            feedDbStorage.saveFeed(userId, entityId, eventTypeId, operationId);
+            return;
+        }
+        enqueue(Feed.builder()
+                .userId(userId)
+                .entityId(entityId)
+                .eventType(EventType.findById(eventTypeId))
+                .operation(Operation.findById(operationId))
+                .build());
+    }
+
+    @Override
+    public void saveFeeds(List<Feed> feeds) {
+        if (!enabled) {
+            feedDbStorage.saveFeeds(feeds);
+            return;
+        }
+        feeds.forEach(this::enqueue);
+    }
+
+    @Override
+    public Collection<Feed> findFeed(int userId) {
+        flush();
+        return feedDbStorage.findFeed(userId);
+    }
+
+    @Override
+    public List<Feed> findFeedAfter(int userId, int limit, Timestamp afterTimestamp, int afterEventId) {
+        flush();
+        return feedDbStorage.findFeedAfter(userId, limit, afterTimestamp, afterEventId);
+    }
+
+    @Override
+    public List<Feed> findFeedBefore(int userId, int limit, Timestamp beforeTimestamp, int beforeEventId) {
+        flush();
+        return feedDbStorage.findFeedBefore(userId, limit, beforeTimestamp, beforeEventId);
+    }
+
+    @Override
+    public List<Feed> findFeedAfterEventId(int userId, int limit, int afterEventId) {
+        flush();
+        return feedDbStorage.findFeedAfterEventId(userId, limit, afterEventId);
+    }
+
+    @Override
+    public int findLastEventId() {
+        flush();
+        return feedDbStorage.findLastEventId();
+    }
+
+    @Override
+    public int findNextEventId() {
+        flush();
+        return feedDbStorage.findNextEventId();
+    }
+
+    @Override
+    public void findAfterEventId(int eventId, Consumer<Feed> consumer) {
+        flush();
+        feedDbStorage.findAfterEventId(eventId, consumer);
+    }
+
+    @Override
+    public List<Integer> findMonthsBefore(int month) {
+        return feedDbStorage.findMonthsBefore(month);
+    }
+
+    @Override
+    public void findByMonth(int month, Consumer<Feed> consumer) {
+        flush();
+        feedDbStorage.findByMonth(month, consumer);
+    }
+
+    @Override
+    public int removeByMonth(int month, int lastEventId) {
+        return feedDbStorage.removeByMonth(month, lastEventId);
+    }
+
+    public void flush() {
+        if (!running || pending.get() == 0) {
+            return;
+        }
+        CountDownLatch barrier = new CountDownLatch(1);
+        try {
+            if (queue.offer(new QueuedFeed(null, barrier), offerTimeoutMs, TimeUnit.MILLISECONDS)
+                    && barrier.await(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("Не удалось дождаться записи событий ленты, в очереди {} событий.", pending.get());
+    }
+
+    private void enqueue(Feed feed) {
+        Feed stamped = Feed.builder()
+                .timestamp(feed.getTimestamp() != null ? feed.getTimestamp() : new Timestamp(System.currentTimeMillis()))
+                .userId(feed.getUserId())
+                .entityId(feed.getEntityId())
+                .eventType(feed.getEventType())
+                .operation(feed.getOperation())
+                .build();
+        if (!running) {
+            writeNow(List.of(stamped));
+            return;
+        }
+        pending.incrementAndGet();
+        try {
+            while (!queue.offer(new QueuedFeed(stamped, null), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Очередь событий ленты переполнена, в очереди {} событий.", pending.get());
+            }
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запись события ленты прервана.", e);
+        }
+    }
+
+    private void drain() {
+        List<Feed> batch = new ArrayList<>(batchSize);
+        List<CountDownLatch> barriers = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedFeed next = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (next != null) {
+                    if (next.getBarrier() != null) {
+                        barriers.add(next.getBarrier());
+                        break;
+                    }
+                    batch.add(next.getFeed());
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                    next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            try {
+                writeNow(batch);
+            } catch (DataAccessException e) {
+                log.error("События ленты не записаны при остановке очереди, потеряно событий: {}.", batch.size(), e);
+            } finally {
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+            barriers.forEach(CountDownLatch::countDown);
+            barriers.clear();
+        }
+    }
+
+    private void writeNow(List<Feed> feeds) {
+        if (feeds.isEmpty()) {
+            return;
+        }
+        try {
+            saveWithRetry(feeds);
+        } catch (DataIntegrityViolationException e) {
+            if (feeds.size() == 1) {
+                log.warn("Событие ленты удаленного пользователя {} не записано: {}", feeds.get(0).getUserId(),
+                        e.getMessage());
+                return;
+            }
+            feeds.forEach(feed -> writeNow(List.of(feed)));
+        }
+    }
+
+    private void saveWithRetry(List<Feed> feeds) {
+        long delayMs = Math.max(1, flushIntervalMs);
+        while (true) {
+            try {
+                feedDbStorage.saveFeeds(feeds);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                throw e;
+            } catch (DataAccessException e) {
+                if (!running) {
+                    throw e;
+                }
+                log.error("Не удалось записать события ленты ({}), повтор через {} мс: {}", feeds.size(), delayMs,
+                        e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                delayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class QueuedFeed {
+        private final Feed feed;
+        private final CountDownLatch barrier;
+    }
+}
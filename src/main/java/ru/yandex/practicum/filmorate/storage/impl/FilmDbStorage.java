@@ -5,22 +5,39 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Score;
 import ru.yandex.practicum.filmorate.model.SortType;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmaps;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
@@ -28,8 +45,21 @@ import java.util.Optional;
 @Qualifier("FilmDbStorage")
 public class FilmDbStorage implements FilmStorage {
 
+    private static final int MAX_ARRAY_SIZE = 50_000;
+
+    private static final Comparator<Film> BY_RATING = Comparator.comparing(Film::getRating).reversed()
+            .thenComparing(Film::getId);
+
+    private static final String RATING_STATS_MERGE = "MERGE INTO FILM_RATING_STATS AS RS " +
+            "USING (VALUES (CAST(? AS INTEGER), CAST(? AS BIGINT), CAST(? AS INTEGER))) AS D (FILM_ID, SCORE_SUM, SCORE_COUNT) " +
+            "ON RS.FILM_ID = D.FILM_ID " +
+            "WHEN MATCHED THEN UPDATE SET SCORE_SUM = RS.SCORE_SUM + D.SCORE_SUM, SCORE_COUNT = RS.SCORE_COUNT + D.SCORE_COUNT " +
+            "WHEN NOT MATCHED THEN INSERT (FILM_ID, SCORE_SUM, SCORE_COUNT) VALUES (D.FILM_ID, D.SCORE_SUM, D.SCORE_COUNT)";
+
     private final JdbcTemplate jdbcTemplate;
 
+    private final IdBitmaps idBitmaps;
+
     @Override
     public Integer saveNew(Film film) {
         String sqlQuery = "INSERT INTO films (name, description, release_date, duration, MPA_ID) " +
@@ -51,10 +81,68 @@ public class FilmDbStorage implements FilmStorage {
             throw new DataIntegrityViolationException("В запросе неправильно указаны данные о фильме.");
         }
         Optional<Integer> filmId = Optional.of(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        idBitmaps.getFilms().add(filmId.get());
 
         return filmId.get();
     }
 
+    @Override
+    @Transactional
+    public List<Integer> saveAll(List<Film> films) {
+        String sqlQuery = "INSERT INTO films (name, description, release_date, duration, MPA_ID) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        List<Integer> filmIds;
+        try {
+            filmIds = jdbcTemplate.execute(connection -> connection.prepareStatement(sqlQuery, new String[]{"film_id"}),
+                    (PreparedStatementCallback<List<Integer>>) stmt -> {
+                        for (Film film : films) {
+                            stmt.setString(1, film.getName());
+                            stmt.setString(2, film.getDescription());
+                            stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+                            stmt.setLong(4, film.getDuration());
+                            stmt.setInt(5, film.getMpa().getId());
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                        List<Integer> ids = new ArrayList<>(films.size());
+                        try (ResultSet keys = stmt.getGeneratedKeys()) {
+                            while (keys.next()) {
+                                ids.add(keys.getInt(1));
+                            }
+                        }
+                        return ids;
+                    });
+            List<int[]> genres = new ArrayList<>();
+            List<int[]> directors = new ArrayList<>();
+            for (int i = 0; i < films.size(); i++) {
+                Film film = films.get(i);
+                int filmId = Objects.requireNonNull(filmIds).get(i);
+                if (film.getGenres() != null) {
+                    film.getGenres().stream().map(Genre::getId).distinct()
+                            .forEach(genreId -> genres.add(new int[]{filmId, genreId}));
+                }
+                if (film.getDirectors() != null) {
+                    film.getDirectors().stream().map(Director::getId).distinct()
+                            .forEach(directorId -> directors.add(new int[]{filmId, directorId}));
+                }
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres,
+                    genres.size(), (ps, link) -> {
+                        ps.setInt(1, link[0]);
+                        ps.setInt(2, link[1]);
+                    });
+            jdbcTemplate.batchUpdate("INSERT INTO FILM_DIRECTOR (film_id, DIRECTOR_ID) VALUES (?, ?)", directors,
+                    directors.size(), (ps, link) -> {
+                        ps.setInt(1, link[0]);
+                        ps.setInt(2, link[1]);
+                    });
+        } catch (DataIntegrityViolationException e) {
+            throw new DataIntegrityViolationException("В запросе неправильно указаны данные о фильме.");
+        }
+        filmIds.forEach(idBitmaps.getFilms()::add);
+        return filmIds;
+    }
+
     @Override
     public Integer update(Film film) {
         String sqlQuery = "UPDATE films SET " +
@@ -84,6 +172,25 @@ public class FilmDbStorage implements FilmStorage {
         return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
     }
 
+    @Override
+    public void findAll(int batchSize, Consumer<List<Film>> consumer) {
+        List<Film> batch;
+        int afterId = 0;
+        do {
+            batch = findAllAfter(batchSize, afterId);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+                consumer.accept(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Override
+    public List<Film> findAllAfter(int limit, int afterId) {
+        String sqlQuery = "SELECT * FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, afterId, limit);
+    }
+
     @Override
     public Film findById(int filmId) {
         String sqlQuery = "SELECT * FROM films where film_id = ?";
@@ -91,13 +198,28 @@ public class FilmDbStorage implements FilmStorage {
                 .orElseThrow(() -> new FilmNotFoundException("Фильм c ID " + filmId + " не найден."));
     }
 
+    @Override
+    public Collection<Film> findByIds(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (filmIds.size() > MAX_ARRAY_SIZE) {
+            List<Film> films = new ArrayList<>();
+            partition(filmIds).forEach(ids -> films.addAll(findByIds(ids)));
+            return films;
+        }
+        String sqlQuery = "SELECT F.* FROM TABLE(ID INT = ?) AS T JOIN FILMS AS F ON F.FILM_ID = T.ID";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm,
+                (Object) filmIds.stream().distinct().toArray(Integer[]::new));
+    }
+
     @Override
     public Collection<Film> findPopular(int count) {
         String sqlQuery =
                 "SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION " +
                         "FROM FILMS AS F " +
-                        "LEFT JOIN FILM_SCORE AS FL ON F.FILM_ID = FL.FILM_ID " +
-                        "GROUP BY F.FILM_ID ORDER BY AVG(FL.SCORE) DESC LIMIT ?";
+                        "LEFT JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                        "ORDER BY RS.RATING DESC, F.FILM_ID LIMIT ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count);
     }
 
@@ -105,25 +227,21 @@ public class FilmDbStorage implements FilmStorage {
     public Collection<Film> findPopularByGenreAndYear(int count, int genreId, int year) {
         String sql = "SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION\n" +
                 "FROM FILMS AS F\n" +
-                "LEFT JOIN FILM_GENRES AS FG ON F.FILM_ID = FG.FILM_ID\n" +
-                "LEFT JOIN FILM_SCORE AS FL ON F.FILM_ID = FL.FILM_ID\n" +
-                "WHERE FG.GENRE_ID = ?\n" +
-                "AND EXTRACT(YEAR FROM CAST(F.RELEASE_DATE AS DATE)) = ?\n" +
-                "GROUP BY F.FILM_ID\n" +
-                "ORDER BY AVG(FL.SCORE) DESC\n" +
+                "LEFT JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID\n" +
+                "WHERE F.FILM_ID IN (SELECT FILM_ID FROM FILM_GENRES WHERE GENRE_ID = ?)\n" +
+                "AND F.RELEASE_DATE >= ? AND F.RELEASE_DATE < ?\n" +
+                "ORDER BY RS.RATING DESC, F.FILM_ID\n" +
                 "LIMIT ?";
-        return jdbcTemplate.query(sql, this::mapRowToFilm, genreId, year, count);
+        return jdbcTemplate.query(sql, this::mapRowToFilm, genreId, yearStart(year), yearStart(year + 1), count);
     }
 
     @Override
     public Collection<Film> findPopularByGenre(int count, int genreId) {
         String sql = "SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION\n" +
                 "FROM FILMS AS F\n" +
-                "LEFT JOIN FILM_GENRES AS FG ON F.FILM_ID = FG.FILM_ID\n" +
-                "LEFT JOIN FILM_SCORE AS FL ON F.FILM_ID = FL.FILM_ID\n" +
-                "WHERE FG.GENRE_ID = ?\n" +
-                "GROUP BY F.FILM_ID\n" +
-                "ORDER BY AVG(FL.SCORE) DESC\n" +
+                "LEFT JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID\n" +
+                "WHERE F.FILM_ID IN (SELECT FILM_ID FROM FILM_GENRES WHERE GENRE_ID = ?)\n" +
+                "ORDER BY RS.RATING DESC, F.FILM_ID\n" +
                 "LIMIT ?";
         return jdbcTemplate.query(sql, this::mapRowToFilm, genreId, count);
     }
@@ -132,42 +250,178 @@ public class FilmDbStorage implements FilmStorage {
     public Collection<Film> findPopularByYear(int count, int year) {
         String sql = "SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION\n" +
                 "FROM FILMS AS F\n" +
-                "LEFT JOIN FILM_GENRES AS FG ON F.FILM_ID = FG.FILM_ID\n" +
-                "LEFT JOIN FILM_SCORE AS FL ON F.FILM_ID = FL.FILM_ID\n" +
-                "WHERE EXTRACT(YEAR FROM CAST(F.RELEASE_DATE AS DATE)) = ?\n" +
-                "GROUP BY F.FILM_ID\n" +
-                "ORDER BY AVG(FL.SCORE) DESC\n" +
+                "LEFT JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID\n" +
+                "WHERE F.RELEASE_DATE >= ? AND F.RELEASE_DATE < ?\n" +
+                "ORDER BY RS.RATING DESC, F.FILM_ID\n" +
                 "LIMIT ?";
-        return jdbcTemplate.query(sql, this::mapRowToFilm, year, count);
+        return jdbcTemplate.query(sql, this::mapRowToFilm, yearStart(year), yearStart(year + 1), count);
     }
 
 
     @Override
     public void removeFilm(int filmId) {
         String sqlQuery = "DELETE FROM FILMS WHERE film_id = ?";
+        if (idBitmaps.isEnabled()) {
+            idBitmaps.getReviews().removeAll(jdbcTemplate.queryForList(
+                    "SELECT REVIEW_ID FROM REVIEWS WHERE FILM_ID = ?", Integer.class, filmId));
+        }
         jdbcTemplate.update(sqlQuery, filmId);
+        idBitmaps.getFilms().remove(filmId);
     }
 
     @Override
+    @Transactional
     public void saveScore(int filmId, int userId, int score) {
         String sqlQuery = "MERGE INTO FILM_SCORE (film_id, user_id, SCORE) VALUES (?, ?, ?)";
+        Optional<Integer> previousScore = findScoreForUpdate(filmId, userId);
         try {
             jdbcTemplate.update(sqlQuery, filmId, userId, score);
         } catch (DataIntegrityViolationException exception) {
             throw new DataIntegrityViolationException("В запросе неправильно указаны данные для добавдения оценки.");
         }
+        if (previousScore.isPresent()) {
+            addToRatingStats(filmId, score - previousScore.get(), 0);
+        } else {
+            addToRatingStats(filmId, score, 1);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void saveScores(List<Score> scores) {
+        Map<Long, Integer> previousScores = new HashMap<>();
+        List<Long> keys = scores.stream()
+                .map(score -> scoreKey(score.getFilmId(), score.getUserId()))
+                .distinct()
+                .collect(Collectors.toList());
+        String sqlQuery = "SELECT S.FILM_ID, S.USER_ID, S.SCORE FROM TABLE(FILM_ID INT = ?, USER_ID INT = ?) AS T " +
+                "JOIN FILM_SCORE AS S ON S.FILM_ID = T.FILM_ID AND S.USER_ID = T.USER_ID FOR UPDATE";
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+                    previousScores.put(scoreKey(resultSet.getInt("FILM_ID"), resultSet.getInt("USER_ID")),
+                            resultSet.getInt("SCORE"));
+                }, keys.stream().map(key -> (int) (key >>> 32)).toArray(Integer[]::new),
+                keys.stream().map(Long::intValue).toArray(Integer[]::new));
+        Map<Integer, int[]> deltas = new HashMap<>();
+        for (Score score : scores) {
+            Integer previousScore = previousScores.get(scoreKey(score.getFilmId(), score.getUserId()));
+            int[] delta = deltas.computeIfAbsent(score.getFilmId(), filmId -> new int[2]);
+            delta[0] += previousScore == null ? score.getScore() : score.getScore() - previousScore;
+            delta[1] += previousScore == null ? 1 : 0;
+        }
+        try {
+            jdbcTemplate.batchUpdate("MERGE INTO FILM_SCORE (film_id, user_id, SCORE) VALUES (?, ?, ?)", scores,
+                    scores.size(), (ps, score) -> {
+                        ps.setInt(1, score.getFilmId());
+                        ps.setInt(2, score.getUserId());
+                        ps.setInt(3, score.getScore());
+                    });
+        } catch (DataIntegrityViolationException exception) {
+            throw new DataIntegrityViolationException("В запросе неправильно указаны данные для добавдения оценки.");
+        }
+        List<Map.Entry<Integer, int[]>> changedStats = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0 || entry.getValue()[1] != 0)
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(RATING_STATS_MERGE, changedStats, changedStats.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getKey());
+            ps.setLong(2, entry.getValue()[0]);
+            ps.setInt(3, entry.getValue()[1]);
+        });
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sqlQuery = "SELECT FILM_ID FROM FILMS WHERE FILM_ID = ANY(?)";
+        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class,
+                (Object) filmIds.toArray(new Integer[0])));
+    }
+
+    @Override
+    public boolean exists(int filmId) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getFilms().contains(filmId);
+        }
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM FILMS WHERE FILM_ID = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, filmId));
+    }
+
+    @Override
+    public Set<Integer> existsAll(Collection<Integer> filmIds) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getFilms().findMissing(filmIds);
+        }
+        Set<Integer> existingIds = findExistingIds(filmIds);
+        return filmIds.stream()
+                .filter(id -> !existingIds.contains(id))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public void rebuildIds() {
+        String sqlQuery = "SELECT FILM_ID FROM FILMS";
+        idBitmaps.getFilms().rebuild(ids -> jdbcTemplate.query(sqlQuery, resultSet -> {
+            ids.accept(resultSet.getInt("FILM_ID"));
+        }));
     }
 
     @Override
+    @Transactional
     public void removeScore(int filmId, int userId) {
         String sqlQuery = "DELETE FROM FILM_SCORE WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        Optional<Integer> previousScore = findScoreForUpdate(filmId, userId);
+        if (previousScore.isPresent()) {
+            jdbcTemplate.update(sqlQuery, filmId, userId);
+            removeFromRatingStats(filmId, previousScore.get());
+        }
+    }
+
+    @Override
+    public List<Integer> findScoredFilmIds(int userId) {
+        String sqlQuery = "SELECT FILM_ID FROM FILM_SCORE WHERE user_id = ?";
+        return jdbcTemplate.queryForList(sqlQuery, Integer.class, userId);
     }
 
     @Override
     public Double findRating(int filmId) {
-        String sqlQuery = "SELECT AVG(SCORE) AS rating FROM FILM_SCORE WHERE film_id = ?";
-        return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToRating, filmId);
+        String sqlQuery = "SELECT RATING FROM FILM_RATING_STATS WHERE film_id = ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToRating, filmId).stream().findFirst().orElse(0.0);
+    }
+
+    @Override
+    public List<Integer> findRatingStatsDrift() {
+        String sqlQuery = "SELECT S.FILM_ID FROM " +
+                "(SELECT FILM_ID, SUM(SCORE) AS SCORE_SUM, COUNT(*) AS SCORE_COUNT FROM FILM_SCORE GROUP BY FILM_ID) AS S " +
+                "LEFT JOIN FILM_RATING_STATS AS RS ON S.FILM_ID = RS.FILM_ID " +
+                "WHERE RS.FILM_ID IS NULL OR RS.SCORE_SUM <> S.SCORE_SUM OR RS.SCORE_COUNT <> S.SCORE_COUNT " +
+                "UNION " +
+                "SELECT RS.FILM_ID FROM FILM_RATING_STATS AS RS " +
+                "WHERE NOT EXISTS (SELECT 1 FROM FILM_SCORE AS FS WHERE FS.FILM_ID = RS.FILM_ID) " +
+                "ORDER BY FILM_ID";
+        return jdbcTemplate.queryForList(sqlQuery, Integer.class);
+    }
+
+    @Override
+    @Transactional
+    public void rebuildRatingStats() {
+        jdbcTemplate.update("DELETE FROM FILM_RATING_STATS");
+        jdbcTemplate.update("INSERT INTO FILM_RATING_STATS (FILM_ID, SCORE_SUM, SCORE_COUNT) " +
+                "SELECT FILM_ID, SUM(SCORE), COUNT(*) FROM FILM_SCORE GROUP BY FILM_ID");
+    }
+
+    @Override
+    public Map<Integer, Double> findRatingsByFilmIds(Collection<Integer> filmIds) {
+        Map<Integer, Double> ratings = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return ratings;
+        }
+        String sqlQuery = "SELECT RS.FILM_ID, RS.RATING FROM TABLE(ID INT = ?) AS T " +
+                "JOIN FILM_RATING_STATS AS RS ON RS.FILM_ID = T.ID";
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+            ratings.put(resultSet.getInt("film_id"), mapRowToRating(resultSet, 0));
+        }, (Object) filmIds.stream().distinct().toArray(Integer[]::new));
+        return ratings;
     }
 
     @Override
@@ -175,11 +429,11 @@ public class FilmDbStorage implements FilmStorage {
         String sqlQuery;
         if (sortBy.equals(SortType.year)) {
             sqlQuery = "SELECT * FROM FILMS WHERE FILM_ID IN (SELECT FILM_ID FROM FILM_DIRECTOR WHERE DIRECTOR_ID = ?) " +
-                    "ORDER BY EXTRACT(YEAR FROM RELEASE_DATE)";
+                    "ORDER BY EXTRACT(YEAR FROM RELEASE_DATE), FILM_ID";
         } else {
-            sqlQuery = "SELECT FILMS.*, AVG(SCORE) AS RATING FROM FILMS LEFT JOIN FILM_SCORE FL on FILMS.FILM_ID = FL.FILM_ID " +
+            sqlQuery = "SELECT FILMS.*, RS.RATING FROM FILMS LEFT JOIN FILM_RATING_STATS RS on FILMS.FILM_ID = RS.FILM_ID " +
                     "WHERE FILMS.FILM_ID IN (SELECT FILM_ID FROM FILM_DIRECTOR WHERE DIRECTOR_ID = ?)\n" +
-                    "group by FILMS.FILM_ID ORDER BY RATING DESC";
+                    "ORDER BY RS.RATING DESC, FILMS.FILM_ID";
         }
         Integer resultCheck = jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
                 rs.getInt("FILM_ID"), directorId).stream().findFirst().orElse(null);
@@ -192,10 +446,10 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Collection<Film> findCommonFilms(int userId, int friendId) {
-        String sqlQuery = "SELECT FILMS.FILM_ID, FILMS.NAME, FILMS.DESCRIPTION, FILMS.DURATION, FILMS.RELEASE_DATE, AVG(FS.SCORE) AS RATING " +
-                " FROM FILMS LEFT JOIN FILM_SCORE FS on FILMS.FILM_ID = FS.FILM_ID WHERE Films.FILM_ID in (select FILM_ID from  FILM_SCORE " +
+        String sqlQuery = "SELECT FILMS.FILM_ID, FILMS.NAME, FILMS.DESCRIPTION, FILMS.DURATION, FILMS.RELEASE_DATE, RS.RATING " +
+                " FROM FILMS LEFT JOIN FILM_RATING_STATS RS on FILMS.FILM_ID = RS.FILM_ID WHERE Films.FILM_ID in (select FILM_ID from  FILM_SCORE " +
                 " where USER_ID = ? AND FILM_ID in (select FILM_ID from FILM_SCORE where USER_ID = ?))" +
-                "GROUP BY FILMS.FILM_ID ORDER BY RATING DESC";
+                "ORDER BY RS.RATING DESC, FILMS.FILM_ID";
 
         return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, userId, friendId);
     }
@@ -205,7 +459,7 @@ public class FilmDbStorage implements FilmStorage {
         String sqlQuery = "SELECT FS.USER_ID FROM FILM_SCORE AS FS\n" +
                 "LEFT JOIN (SELECT FILM_ID, SCORE AS RATING_BYUSER FROM FILM_SCORE WHERE USER_ID = ?) AS FR2 ON FS.FILM_ID = FR2.FILM_ID\n" +
                 "WHERE FS.FILM_ID in (select FILM_ID from  FILM_SCORE where USER_ID = ?) AND NOT FS.USER_ID = ?\n" +
-                "AND ((SCORE-RATING_BYUSER) <= 0 AND  (SCORE-RATING_BYUSER) >= -2) OR ((SCORE-RATING_BYUSER) > 0 AND  (SCORE-RATING_BYUSER) <= 2)\n" +
+                "AND ABS(SCORE - RATING_BYUSER) <= 2\n" +
                 "GROUP BY FS.USER_ID ORDER BY COUNT(FS.USER_ID) DESC LIMIT 1";
 
         Integer idRecommendationUser = jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
@@ -213,50 +467,148 @@ public class FilmDbStorage implements FilmStorage {
         if (idRecommendationUser == null)
             return new ArrayList<>();
 
-        String sqlQuery2 = "SELECT * FROM FILMS AS F LEFT JOIN " +
-                "(SELECT FILM_ID, AVG(SCORE) AS RAING FROM FILM_SCORE GROUP BY FILM_ID) AS FR ON F.FILM_ID = FR.FILM_ID\n" +
+        String sqlQuery2 = "SELECT F.* FROM FILMS AS F JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID\n" +
                 "WHERE F.FILM_ID IN (SELECT FS.FILM_ID FROM FILM_SCORE AS FS WHERE FS.USER_ID = ? " +
-                "AND FS.FILM_ID NOT IN (SELECT FS2.FILM_ID FROM FILM_SCORE AS FS2 WHERE FS2.USER_ID = ?)) AND RAING > 5";
+                "AND FS.FILM_ID NOT IN (SELECT FS2.FILM_ID FROM FILM_SCORE AS FS2 WHERE FS2.USER_ID = ?)) AND RS.RATING > 5\n" +
+                "ORDER BY RS.RATING DESC, F.FILM_ID";
 
         return jdbcTemplate.query(sqlQuery2, this::mapRowToFilm, idRecommendationUser, id);
     }
 
+    @Override
+    public List<Score> findAllScores() {
+        String sqlQuery = "SELECT FILM_ID, USER_ID, SCORE FROM FILM_SCORE";
+        return jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
+                new Score(rs.getInt("FILM_ID"), rs.getInt("USER_ID"), rs.getInt("SCORE")));
+    }
+
     @Override
     public Collection<Film> searchByTitle(String query) {
-        String searchByTitle = "SELECT F.*, AVG(FL.SCORE) AS RATING " +
+        String searchByTitle = "SELECT F.*, RS.RATING " +
                 "FROM FILMS AS F " +
-                "LEFT OUTER JOIN FILM_SCORE AS FL ON F.FILM_ID = FL.FILM_ID " +
+                "LEFT OUTER JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
                 "WHERE UPPER(F.NAME) LIKE UPPER(CONCAT('%', ?, '%')) " +
-                "GROUP BY F.FILM_ID " +
-                "ORDER BY RATING DESC";
+                "ORDER BY RS.RATING DESC, F.FILM_ID";
 
         return jdbcTemplate.query(searchByTitle, this::mapRowToFilm, query);
     }
 
     @Override
     public Collection<Film> searchByDirector(String query) {
-        String searchByDir = "SELECT F.*, AVG(FL.SCORE) AS RATING " +
+        String searchByDir = "SELECT F.*, RS.RATING " +
                 "FROM FILMS F " +
-                "LEFT OUTER JOIN FILM_DIRECTOR FD ON F.FILM_ID = FD.FILM_ID " +
-                "LEFT OUTER JOIN DIRECTORS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
-                "LEFT OUTER JOIN FILM_SCORE FL ON F.FILM_ID = FL.FILM_ID " +
-                "WHERE UPPER(D.DIRECTOR_NAME) LIKE UPPER(CONCAT('%', ?, '%')) " +
-                "GROUP BY F.FILM_ID " +
-                "ORDER BY RATING DESC";
+                "LEFT OUTER JOIN FILM_RATING_STATS RS ON F.FILM_ID = RS.FILM_ID " +
+                "WHERE F.FILM_ID IN (SELECT FD.FILM_ID FROM FILM_DIRECTOR FD " +
+                "JOIN DIRECTORS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
+                "WHERE UPPER(D.DIRECTOR_NAME) LIKE UPPER(CONCAT('%', ?, '%'))) " +
+                "ORDER BY RS.RATING DESC, F.FILM_ID";
 
         return jdbcTemplate.query(searchByDir, this::mapRowToFilm, query);
     }
 
+    @Override
+    public List<Suggestion> suggestByName(String prefix, int count) {
+        String sqlQuery = "SELECT F.FILM_ID, F.NAME FROM FILMS AS F " +
+                "LEFT OUTER JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                "WHERE LOCATE(CONCAT(' ', UPPER(?)), CONCAT(' ', UPPER(F.NAME))) > 0 " +
+                "ORDER BY COALESCE(RS.RATING, 0) DESC, F.FILM_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> new Suggestion(rs.getInt("FILM_ID"), rs.getString("NAME")),
+                prefix, count);
+    }
+
+    @Override
+    public List<Film> findByIdsOrderByRating(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (filmIds.size() > MAX_ARRAY_SIZE) {
+            List<Film> films = new ArrayList<>();
+            partition(filmIds).forEach(ids -> films.addAll(findByIdsOrderByRating(ids)));
+            films.sort(BY_RATING);
+            return films;
+        }
+        String sqlQuery = "SELECT F.*, RS.RATING FROM TABLE(ID INT = ?) AS T " +
+                "JOIN FILMS AS F ON F.FILM_ID = T.ID " +
+                "LEFT OUTER JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                "ORDER BY RS.RATING DESC, F.FILM_ID";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToRatedFilm,
+                (Object) filmIds.stream().distinct().toArray(Integer[]::new));
+    }
+
+    @Override
+    public List<Film> findByIdsOrderByRatingAfter(Collection<Integer> filmIds, int limit, double afterRating,
+                                                  int afterId) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (filmIds.size() > MAX_ARRAY_SIZE) {
+            List<Film> films = new ArrayList<>();
+            partition(filmIds).forEach(ids ->
+                    films.addAll(findByIdsOrderByRatingAfter(ids, limit, afterRating, afterId)));
+            films.sort(BY_RATING);
+            return new ArrayList<>(films.subList(0, Math.min(limit, films.size())));
+        }
+        String sqlQuery = "SELECT F.*, RS.RATING FROM TABLE(ID INT = ?) AS T " +
+                "JOIN FILMS AS F ON F.FILM_ID = T.ID " +
+                "LEFT OUTER JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                "WHERE COALESCE(RS.RATING, 0) <= ? AND (COALESCE(RS.RATING, 0) < ? OR F.FILM_ID > ?) " +
+                "ORDER BY COALESCE(RS.RATING, 0) DESC, F.FILM_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToRatedFilm, filmIds.stream().distinct().toArray(Integer[]::new),
+                afterRating, afterRating, afterId, limit);
+    }
+
+    @Override
+    public List<Film> searchAfter(String query, boolean byTitle, boolean byDirector, int limit, double afterRating,
+                                  int afterId) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (byTitle) {
+            conditions.add("UPPER(F.NAME) LIKE UPPER(CONCAT('%', ?, '%'))");
+            params.add(query);
+        }
+        if (byDirector) {
+            conditions.add("F.FILM_ID IN (SELECT FD.FILM_ID FROM FILM_DIRECTOR AS FD " +
+                    "JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
+                    "WHERE UPPER(D.DIRECTOR_NAME) LIKE UPPER(CONCAT('%', ?, '%')))");
+            params.add(query);
+        }
+        String search = "SELECT F.*, RS.RATING " +
+                "FROM FILMS AS F " +
+                "LEFT OUTER JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                "WHERE (" + String.join(" OR ", conditions) + ") " +
+                "AND COALESCE(RS.RATING, 0) <= ? AND (COALESCE(RS.RATING, 0) < ? OR F.FILM_ID > ?) " +
+                "ORDER BY COALESCE(RS.RATING, 0) DESC, F.FILM_ID LIMIT ?";
+        params.addAll(List.of(afterRating, afterRating, afterId, limit));
+        return jdbcTemplate.query(search, this::mapRowToFilm, params.toArray());
+    }
+
+    @Override
+    public List<Film> findByDirectorIdByYearAfter(int directorId, int limit, int afterYear, int afterId) {
+        String sqlQuery = "SELECT * FROM FILMS WHERE FILM_ID IN (SELECT FILM_ID FROM FILM_DIRECTOR WHERE DIRECTOR_ID = ?) " +
+                "AND EXTRACT(YEAR FROM RELEASE_DATE) >= ? AND (EXTRACT(YEAR FROM RELEASE_DATE) > ? OR FILM_ID > ?) " +
+                "ORDER BY EXTRACT(YEAR FROM RELEASE_DATE), FILM_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, directorId, afterYear, afterYear, afterId, limit);
+    }
+
+    @Override
+    public List<Film> findByDirectorIdByRatingAfter(int directorId, int limit, double afterRating, int afterId) {
+        String sqlQuery = "SELECT F.*, RS.RATING FROM FILMS AS F LEFT JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                "WHERE F.FILM_ID IN (SELECT FILM_ID FROM FILM_DIRECTOR WHERE DIRECTOR_ID = ?) " +
+                "AND COALESCE(RS.RATING, 0) <= ? AND (COALESCE(RS.RATING, 0) < ? OR F.FILM_ID > ?) " +
+                "ORDER BY COALESCE(RS.RATING, 0) DESC, F.FILM_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, directorId, afterRating, afterRating, afterId, limit);
+    }
+
     @Override
     public Collection<Film> searchByFilmAndDirector(String query) {
-        String search = "SELECT F.*, D.DIRECTOR_NAME, AVG(FL.SCORE) AS RATING " +
+        String search = "SELECT F.*, RS.RATING " +
                 "FROM FILMS AS F " +
-                "LEFT OUTER JOIN FILM_DIRECTOR AS FD ON F.FILM_ID = FD.FILM_ID " +
-                "LEFT OUTER JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
-                "LEFT OUTER JOIN FILM_SCORE AS FL ON F.FILM_ID = FL.FILM_ID " +
-                "WHERE UPPER(F.NAME) LIKE UPPER(CONCAT('%', ?, '%')) OR UPPER(D.DIRECTOR_NAME) LIKE UPPER(CONCAT('%', ?, '%')) " +
-                "GROUP BY F.FILM_ID, D.DIRECTOR_NAME " +
-                "ORDER BY RATING DESC";
+                "LEFT OUTER JOIN FILM_RATING_STATS AS RS ON F.FILM_ID = RS.FILM_ID " +
+                "WHERE UPPER(F.NAME) LIKE UPPER(CONCAT('%', ?, '%')) " +
+                "OR F.FILM_ID IN (SELECT FD.FILM_ID FROM FILM_DIRECTOR AS FD " +
+                "JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
+                "WHERE UPPER(D.DIRECTOR_NAME) LIKE UPPER(CONCAT('%', ?, '%'))) " +
+                "ORDER BY RS.RATING DESC, F.FILM_ID";
 
         return jdbcTemplate.query(search, this::mapRowToFilm, query, query);
     }
@@ -271,7 +623,45 @@ public class FilmDbStorage implements FilmStorage {
                 .build();
     }
 
+    private Film mapRowToRatedFilm(ResultSet resultSet, int rowNum) throws SQLException {
+        Film film = mapRowToFilm(resultSet, rowNum);
+        film.setRating(resultSet.getDouble("RATING"));
+        return film;
+    }
+
+    private static List<List<Integer>> partition(Collection<Integer> ids) {
+        List<Integer> idsList = new ArrayList<>(ids);
+        List<List<Integer>> parts = new ArrayList<>();
+        for (int from = 0; from < idsList.size(); from += MAX_ARRAY_SIZE) {
+            parts.add(idsList.subList(from, Math.min(idsList.size(), from + MAX_ARRAY_SIZE)));
+        }
+        return parts;
+    }
+
+    private Optional<Integer> findScoreForUpdate(int filmId, int userId) {
+        String sqlQuery = "SELECT SCORE FROM FILM_SCORE WHERE film_id = ? AND user_id = ? FOR UPDATE";
+        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> rs.getInt("SCORE"), filmId, userId).stream().findFirst();
+    }
+
+    private void addToRatingStats(int filmId, int scoreSumDelta, int scoreCountDelta) {
+        jdbcTemplate.update(RATING_STATS_MERGE, filmId, scoreSumDelta, scoreCountDelta);
+    }
+
+    private void removeFromRatingStats(int filmId, int score) {
+        jdbcTemplate.update("DELETE FROM FILM_RATING_STATS WHERE FILM_ID = ? AND SCORE_COUNT = 1", filmId);
+        jdbcTemplate.update("UPDATE FILM_RATING_STATS SET SCORE_SUM = SCORE_SUM - ?, SCORE_COUNT = SCORE_COUNT - 1 " +
+                "WHERE FILM_ID = ?", score, filmId);
+    }
+
+    private static long scoreKey(int filmId, int userId) {
+        return ((long) filmId << 32) | userId;
+    }
+
     private Double mapRowToRating(ResultSet resultSet, int rowNum) throws SQLException {
         return resultSet.getDouble("rating");
     }
+
+    private Date yearStart(int year) {
+        return Date.valueOf(LocalDate.of(year, 1, 1));
+    }
 }
\ No newline at end of file
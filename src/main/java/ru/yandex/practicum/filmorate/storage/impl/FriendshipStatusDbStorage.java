@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipStatusStorage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Repository
+@RequiredArgsConstructor
+public class FriendshipStatusDbStorage implements FriendshipStatusStorage {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.FRIENDSHIP_STATUSES)
+    public Integer findIdByName(String statusName) {
+        String sqlQuery = "SELECT * FROM FRIENDSHIP_STATUS WHERE \"Friendship_status_name\" = ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToFriendshipStatus, statusName).stream().findFirst()
+                .map(FriendshipStatus::getStatusId)
+                .orElseThrow(() -> new IllegalStateException("Статус дружбы " + statusName + " не найден."));
+    }
+
+    private FriendshipStatus mapRowToFriendshipStatus(ResultSet resultSet, int rowNum) throws SQLException {
+        return FriendshipStatus.builder()
+                .statusId(resultSet.getInt("FRIENDSHIP_STATUS_ID"))
+                .statusName(resultSet.getString("Friendship_status_name"))
+                .build();
+    }
+}
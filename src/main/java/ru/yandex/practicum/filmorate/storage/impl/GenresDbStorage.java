@@ -1,16 +1,21 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.dao.GenresStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
@@ -41,12 +46,30 @@ public class GenresDbStorage implements GenresStorage {
     }
 
     @Override
+    public Map<Integer, List<Genre>> findByFilmIds(Collection<Integer> filmIds) {
+        Map<Integer, List<Genre>> genres = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return genres;
+        }
+        String sqlQuery = "SELECT FG.FILM_ID, FG.GENRE_ID, G2.GENRE_NAME FROM TABLE(ID INT = ?) AS T " +
+                "JOIN FILM_GENRES AS FG ON FG.FILM_ID = T.ID JOIN GENRES G2 on G2.GENRE_ID = FG.GENRE_ID " +
+                "ORDER BY FG.FILM_ID, FG.GENRE_ID";
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+            genres.computeIfAbsent(resultSet.getInt("film_id"), filmId -> new ArrayList<>())
+                    .add(mapRowToGenre(resultSet, 0));
+        }, (Object) filmIds.stream().distinct().toArray(Integer[]::new));
+        return genres;
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.GENRES)
     public Collection<Genre> findAll() {
         String sqlQuery = "SELECT * FROM GENRES";
         return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.GENRES)
     public Genre findById(int genreId) {
         String sqlQuery = "SELECT * FROM GENRES WHERE genre_id = ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToGenre, genreId).stream().findFirst()
@@ -1,15 +1,20 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.RatingNotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.dao.MpaStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
@@ -18,12 +23,14 @@ public class MpaDbStorage implements MpaStorage {
     private final JdbcTemplate jdbcTemplate;
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MPA)
     public List<Mpa> findAll() {
         String sqlQuery = "SELECT * FROM MPA";
         return jdbcTemplate.query(sqlQuery, this::mapRowToMpa);
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.MPA)
     public Mpa findById(int ratingId) {
         String sqlQuery = "SELECT * FROM MPA WHERE MPA_ID = ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToMpa, ratingId).stream().findFirst()
@@ -37,6 +44,20 @@ public class MpaDbStorage implements MpaStorage {
         return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToMpa, filmId);
     }
 
+    @Override
+    public Map<Integer, Mpa> findByFilmIds(Collection<Integer> filmIds) {
+        Map<Integer, Mpa> ratings = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return ratings;
+        }
+        String sqlQuery = "SELECT F.FILM_ID, R.MPA_ID, R.MPA_NAME FROM TABLE(ID INT = ?) AS T " +
+                "JOIN FILMS F ON F.FILM_ID = T.ID JOIN MPA AS R ON R.MPA_ID = F.MPA_ID";
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+            ratings.put(resultSet.getInt("film_id"), mapRowToMpa(resultSet, 0));
+        }, (Object) filmIds.stream().distinct().toArray(Integer[]::new));
+        return ratings;
+    }
+
     private Mpa mapRowToMpa(ResultSet resultSet, int rowNum) throws SQLException {
         return Mpa.builder()
                 .id(resultSet.getInt("mpa_id"))
@@ -6,22 +6,28 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.ReviewNotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.dao.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmaps;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor
 public class ReviewDbStorage implements ReviewStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    private final IdBitmaps idBitmaps;
+
     @Override
     public Integer saveNew(Review review) {
         String sqlQuery = "INSERT INTO REVIEWS (content, user_id, film_id, is_positive) " +
@@ -43,6 +49,7 @@ public class ReviewDbStorage implements ReviewStorage {
             throw new DataIntegrityViolationException("В запросе неправильно указаны данные по отзыву.");
         }
         Optional<Integer> reviewId = Optional.of(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        idBitmaps.getReviews().add(reviewId.get());
 
         return reviewId.get();
     }
@@ -71,6 +78,7 @@ public class ReviewDbStorage implements ReviewStorage {
     public void remove(int reviewId) {
         String sqlQuery = "DELETE FROM REVIEWS WHERE review_id = ?";
         jdbcTemplate.update(sqlQuery, reviewId);
+        idBitmaps.getReviews().remove(reviewId);
     }
 
     @Override
@@ -80,30 +88,80 @@ public class ReviewDbStorage implements ReviewStorage {
                 .orElseThrow(() -> new ReviewNotFoundException("Отзыв c ID " + reviewId + " не найден."));
     }
 
+    @Override
+    public boolean exists(int reviewId) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getReviews().contains(reviewId);
+        }
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM REVIEWS WHERE REVIEW_ID = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, reviewId));
+    }
+
+    @Override
+    public Set<Integer> existsAll(Collection<Integer> reviewIds) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getReviews().findMissing(reviewIds);
+        }
+        Set<Integer> missingIds = new LinkedHashSet<>(reviewIds);
+        if (!missingIds.isEmpty()) {
+            String sqlQuery = "SELECT REVIEW_ID FROM REVIEWS WHERE REVIEW_ID = ANY(?)";
+            missingIds.removeAll(jdbcTemplate.queryForList(sqlQuery, Integer.class,
+                    (Object) reviewIds.toArray(new Integer[0])));
+        }
+        return missingIds;
+    }
+
+    @Override
+    public void rebuildIds() {
+        String sqlQuery = "SELECT REVIEW_ID FROM REVIEWS";
+        idBitmaps.getReviews().rebuild(ids -> jdbcTemplate.query(sqlQuery, resultSet -> {
+            ids.accept(resultSet.getInt("REVIEW_ID"));
+        }));
+    }
+
     @Override
     public Collection<Review> findAll(int count) {
-        String sqlQuery = "SELECT * FROM REVIEWS LIMIT ?";
+        String sqlQuery = "SELECT * FROM REVIEWS ORDER BY USEFUL DESC, REVIEW_ID LIMIT ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToReview, count);
     }
 
+    @Override
+    public Collection<Review> findAllAfter(int count, int afterUseful, int afterId) {
+        String sqlQuery = "SELECT * FROM REVIEWS WHERE USEFUL <= ? AND (USEFUL < ? OR REVIEW_ID > ?) " +
+                "ORDER BY USEFUL DESC, REVIEW_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToReview, afterUseful, afterUseful, afterId, count);
+    }
+
     @Override
     public Collection<Review> findByFilmId(int filmId, int count) {
-        String sqlQuery = "SELECT R.REVIEW_ID, R.CONTENT, R.USER_ID, R.FILM_ID, R.IS_POSITIVE, SUM(RL.USEFUL) as rating\n" +
-                "FROM REVIEWS as R left join REVIEWS_LIKES RL on R.REVIEW_ID = RL.REVIEW_ID where FILM_ID = ?\n" +
-                "group by R.USER_ID, R.CONTENT, R.USER_ID, R.FILM_ID, R.IS_POSITIVE order by rating DESC\n" +
-                "LIMIT ?";
+        String sqlQuery = "SELECT * FROM REVIEWS WHERE FILM_ID = ? ORDER BY USEFUL DESC, REVIEW_ID LIMIT ?";
         return jdbcTemplate.query(sqlQuery, this::mapRowToReview, filmId, count);
     }
 
     @Override
+    public Collection<Review> findByFilmIdAfter(int filmId, int count, int afterUseful, int afterId) {
+        String sqlQuery = "SELECT * FROM REVIEWS WHERE FILM_ID = ? AND USEFUL <= ? AND (USEFUL < ? OR REVIEW_ID > ?) " +
+                "ORDER BY USEFUL DESC, REVIEW_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToReview, filmId, afterUseful, afterUseful, afterId, count);
+    }
+
+    @Override
+    @Transactional
     public void saveLike(int userId, int reviewId, int like) {
         String sqlQuery = "INSERT INTO REVIEWS_LIKES (USER_ID, REVIEW_ID, USEFUL) VALUES ( ?, ?, ? )";
+        String sqlQueryForUseful = "UPDATE REVIEWS SET USEFUL = USEFUL + ? WHERE REVIEW_ID = ?";
         jdbcTemplate.update(sqlQuery, userId, reviewId, like);
+        jdbcTemplate.update(sqlQueryForUseful, like, reviewId);
     }
 
     @Override
+    @Transactional
     public void removeLike(int userId, int reviewId) {
+        String sqlQueryForUseful = "UPDATE REVIEWS R SET USEFUL = R.USEFUL - (SELECT RL.USEFUL FROM REVIEWS_LIKES RL " +
+                "WHERE RL.USER_ID = ? AND RL.REVIEW_ID = R.REVIEW_ID) " +
+                "WHERE R.REVIEW_ID = ? AND EXISTS (SELECT * FROM REVIEWS_LIKES WHERE USER_ID = ? AND REVIEW_ID = ?)";
         String sqlQuery = "DELETE FROM REVIEWS_LIKES WHERE USER_ID = ? AND REVIEW_ID = ?";
+        jdbcTemplate.update(sqlQueryForUseful, userId, reviewId, userId, reviewId);
         jdbcTemplate.update(sqlQuery, userId, reviewId);
     }
 
@@ -133,13 +191,7 @@ public class ReviewDbStorage implements ReviewStorage {
                 .userId(resultSet.getInt("user_id"))
                 .filmId(resultSet.getInt("film_id"))
                 .isPositive(resultSet.getBoolean("is_positive"))
-                .useful(findUseful(resultSet.getInt("review_id")))
+                .useful(resultSet.getInt("useful"))
                 .build();
     }
-
-    private int findUseful(int reviewId) {
-        String sqlQuery = "SELECT SUM(USEFUL) FROM REVIEWS_LIKES WHERE review_id = ?";
-        Optional<Integer> useful = Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, Integer.class, reviewId));
-        return useful.orElse(0);
-    }
 }
\ No newline at end of file
@@ -1,41 +1,47 @@
 package ru.yandex.practicum.filmorate.storage.impl;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.UserNotFoundException;
-import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.FriendshipStatusStorage;
 import ru.yandex.practicum.filmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmaps;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
+@RequiredArgsConstructor
 @Slf4j
 @Qualifier("UserDbStorage")
 public class UserDbStorage implements UserStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
-    private final Map<String, Integer> friendshipStatuses;
+    private final FriendshipStatusStorage friendshipStatusStorage;
 
-    @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
-        friendshipStatuses = findAllFriendshipStatuses();
-    }
+    private final IdBitmaps idBitmaps;
 
     @Override
     public Integer saveNew(User user) {
@@ -53,6 +59,7 @@ public class UserDbStorage implements UserStorage {
         }, keyHolder);
 
         Optional<Integer> userId = Optional.of(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        idBitmaps.getUsers().add(userId.get());
 
         return userId.get();
     }
@@ -81,6 +88,25 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
     }
 
+    @Override
+    public void findAll(int batchSize, Consumer<List<User>> consumer) {
+        List<User> batch;
+        int afterId = 0;
+        do {
+            batch = findAllAfter(batchSize, afterId);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+                consumer.accept(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Override
+    public List<User> findAllAfter(int limit, int afterId) {
+        String sqlQuery = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId, limit);
+    }
+
     @Override
     public User findById(int userId) {
         String sqlQuery = "SELECT * FROM users where user_id = ?";
@@ -88,6 +114,62 @@ public class UserDbStorage implements UserStorage {
                 .orElseThrow(() -> new UserNotFoundException("Пользователь c ID " + userId + " не найден."));
     }
 
+    @Override
+    public List<User> findByIds(int[] userIds) {
+        if (userIds.length == 0) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = "SELECT * FROM users WHERE user_id = ANY(?) ORDER BY user_id";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser,
+                (Object) Arrays.stream(userIds).boxed().toArray(Integer[]::new));
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sqlQuery = "SELECT USER_ID FROM USERS WHERE USER_ID = ANY(?)";
+        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class,
+                (Object) userIds.toArray(new Integer[0])));
+    }
+
+    @Override
+    public boolean exists(int userId) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getUsers().contains(userId);
+        }
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM USERS WHERE USER_ID = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, userId));
+    }
+
+    @Override
+    public Set<Integer> existsAll(Collection<Integer> userIds) {
+        if (idBitmaps.isEnabled()) {
+            return idBitmaps.getUsers().findMissing(userIds);
+        }
+        Set<Integer> existingIds = findExistingIds(userIds);
+        return userIds.stream()
+                .filter(id -> !existingIds.contains(id))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public void rebuildIds() {
+        String sqlQuery = "SELECT USER_ID FROM USERS";
+        idBitmaps.getUsers().rebuild(ids -> jdbcTemplate.query(sqlQuery, resultSet -> {
+            ids.accept(resultSet.getInt("USER_ID"));
+        }));
+    }
+
+    @Override
+    public void findAllFriendships(BiConsumer<Integer, Integer> consumer) {
+        String sqlQuery = "SELECT user_id, friend_id FROM list_of_friends";
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+            consumer.accept(resultSet.getInt("user_id"), resultSet.getInt("friend_id"));
+        });
+    }
+
     @Override
     public void saveFriend(int userId, int friendId) {
         String sqlQueryForMakingFriend = "INSERT INTO list_of_friends (user_id, friend_id, friendship_status_id) " +
@@ -96,10 +178,11 @@ public class UserDbStorage implements UserStorage {
                 "friendship_status_id = ? WHERE user_id = ? AND friend_id = ?";
 
         if (findDidFriendMadeFriendRequest(friendId, userId)) {
-            jdbcTemplate.update(sqlQueryForMakingFriend, userId, friendId, friendshipStatuses.get("approved"));
-            jdbcTemplate.update(sqlQueryForCheckingFriendshipStatus, friendshipStatuses.get("approved"), friendId, userId);
+            int approved = friendshipStatusStorage.findIdByName("approved");
+            jdbcTemplate.update(sqlQueryForMakingFriend, userId, friendId, approved);
+            jdbcTemplate.update(sqlQueryForCheckingFriendshipStatus, approved, friendId, userId);
         } else {
-            jdbcTemplate.update(sqlQueryForMakingFriend, userId, friendId, friendshipStatuses.get("request"));
+            jdbcTemplate.update(sqlQueryForMakingFriend, userId, friendId, friendshipStatusStorage.findIdByName("request"));
         }
     }
 
@@ -122,14 +205,36 @@ public class UserDbStorage implements UserStorage {
     @Override
     public Collection<User> findFriends(int userId) {
         String sqlQuery = "SELECT * FROM users WHERE user_id IN (" +
-                "SELECT friend_id FROM list_of_friends WHERE user_id = ?)";
+                "SELECT friend_id FROM list_of_friends WHERE user_id = ?) ORDER BY user_id";
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser, userId);
     }
 
     @Override
+    public List<User> findFriendsAfter(int userId, int limit, int afterId) {
+        String sqlQuery = "SELECT U.* FROM list_of_friends AS LF JOIN users AS U ON U.user_id = LF.friend_id " +
+                "WHERE LF.user_id = ? AND LF.friend_id > ? ORDER BY LF.friend_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, userId, afterId, limit);
+    }
+
+    @Override
+    @Transactional
     public void removeUser(int id) {
+        String sqlQueryForRatingStats = "MERGE INTO FILM_RATING_STATS AS RS " +
+                "USING (SELECT FILM_ID, SCORE FROM FILM_SCORE WHERE USER_ID = ?) AS FS ON RS.FILM_ID = FS.FILM_ID " +
+                "WHEN MATCHED AND RS.SCORE_COUNT = 1 THEN DELETE " +
+                "WHEN MATCHED THEN UPDATE SET SCORE_SUM = RS.SCORE_SUM - FS.SCORE, SCORE_COUNT = RS.SCORE_COUNT - 1";
+        String sqlQueryForReviewsUseful = "MERGE INTO REVIEWS AS R " +
+                "USING (SELECT REVIEW_ID, USEFUL FROM REVIEWS_LIKES WHERE USER_ID = ?) AS RL ON R.REVIEW_ID = RL.REVIEW_ID " +
+                "WHEN MATCHED THEN UPDATE SET USEFUL = R.USEFUL - RL.USEFUL";
         String sqlQuery = "DELETE FROM USERS WHERE USER_ID = ?";
+        jdbcTemplate.update(sqlQueryForRatingStats, id);
+        jdbcTemplate.update(sqlQueryForReviewsUseful, id);
+        if (idBitmaps.isEnabled()) {
+            idBitmaps.getReviews().removeAll(jdbcTemplate.queryForList(
+                    "SELECT REVIEW_ID FROM REVIEWS WHERE USER_ID = ?", Integer.class, id));
+        }
         jdbcTemplate.update(sqlQuery, id);
+        idBitmaps.getUsers().remove(id);
     }
 
     private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
@@ -147,16 +252,4 @@ public class UserDbStorage implements UserStorage {
                 " WHERE user_id = ? AND friend_id = ?";
         return jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId).next();
     }
-
-    private Map<String, Integer> findAllFriendshipStatuses() {
-        return jdbcTemplate.query("SELECT * FROM FRIENDSHIP_STATUS", this::mapRowToFriendshipStatus).stream()
-                .collect(Collectors.toMap(FriendshipStatus::getStatusName, FriendshipStatus::getStatusId));
-    }
-
-    private FriendshipStatus mapRowToFriendshipStatus(ResultSet resultSet, int rowNum) throws SQLException {
-        return FriendshipStatus.builder()
-                .statusId(resultSet.getInt("FRIENDSHIP_STATUS_ID"))
-                .statusName(resultSet.getString("Friendship_status_name"))
-                .build();
-    }
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Component
+public class FilmSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private TextIndex titles = new TextIndex();
+
+    private TextIndex directorNames = new TextIndex();
+
+    private Map<Integer, IntPostings> filmsByDirector = new HashMap<>();
+
+    private Map<Integer, Set<Integer>> directorsByFilm = new HashMap<>();
+
+    private List<Consumer<FilmSearchIndex>> pending;
+
+    public FilmSearchIndex(@Value("${filmorate.search-index.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void rebuild(Consumer<FilmSearchIndex> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        FilmSearchIndex rebuilt = new FilmSearchIndex(true);
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    titles = rebuilt.titles;
+                    directorNames = rebuilt.directorNames;
+                    filmsByDirector = rebuilt.filmsByDirector;
+                    directorsByFilm = rebuilt.directorsByFilm;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void saveFilm(int filmId, String name, Collection<Integer> directorIds) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> index.putFilm(filmId, name, directorIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                index.titles.remove(filmId);
+                index.unlinkFilm(filmId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void saveDirector(int directorId, String name) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> index.directorNames.put(directorId, name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> index.unlinkDirector(directorId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> search(String query, boolean byTitle, boolean byDirector) {
+        lock.readLock().lock();
+        try {
+            IntStream filmIds = byTitle ? Arrays.stream(titles.search(query)) : IntStream.empty();
+            if (byDirector) {
+                IntStream directorFilmIds = Arrays.stream(directorNames.search(query))
+                        .mapToObj(filmsByDirector::get)
+                        .filter(Objects::nonNull)
+                        .flatMapToInt(films -> Arrays.stream(films.toArray()));
+                filmIds = IntStream.concat(filmIds, directorFilmIds).sorted().distinct();
+            }
+            return filmIds.boxed().collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<FilmSearchIndex> operation) {
+        operation.accept(this);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    private void putFilm(int filmId, String name, Collection<Integer> directorIds) {
+        titles.put(filmId, name);
+        unlinkFilm(filmId);
+        if (!directorIds.isEmpty()) {
+            directorsByFilm.put(filmId, new HashSet<>(directorIds));
+            directorIds.forEach(directorId -> filmsByDirector.computeIfAbsent(directorId, id -> new IntPostings())
+                    .add(filmId));
+        }
+    }
+
+    private void unlinkDirector(int directorId) {
+        directorNames.remove(directorId);
+        IntPostings films = filmsByDirector.remove(directorId);
+        if (films != null) {
+            for (int i = 0; i < films.size(); i++) {
+                Set<Integer> directors = directorsByFilm.get(films.get(i));
+                directors.remove(directorId);
+                if (directors.isEmpty()) {
+                    directorsByFilm.remove(films.get(i));
+                }
+            }
+        }
+    }
+
+    private void unlinkFilm(int filmId) {
+        Set<Integer> directors = directorsByFilm.remove(filmId);
+        if (directors == null) {
+            return;
+        }
+        for (int directorId : directors) {
+            IntPostings films = filmsByDirector.get(directorId);
+            films.remove(filmId);
+            if (films.size() == 0) {
+                filmsByDirector.remove(directorId);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toUpperCase(Locale.ROOT);
+    }
+
+    private static Set<Long> grams(String text, int minLength) {
+        Set<Long> grams = new HashSet<>();
+        for (int length = minLength; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(gram(text, i, length));
+            }
+        }
+        return grams;
+    }
+
+    private static long gram(String text, int start, int length) {
+        long gram = length == GRAM_LENGTH ? 0 : (long) length << 48;
+        for (int i = 0; i < length; i++) {
+            gram |= (long) text.charAt(start + i) << (16 * (length - 1 - i));
+        }
+        return gram;
+    }
+
+    private static class TextIndex {
+
+        private final Map<Integer, String> texts = new HashMap<>();
+
+        private final Map<Long, IntPostings> postings = new HashMap<>();
+
+        void put(int id, String text) {
+            remove(id);
+            String normalized = normalize(text);
+            texts.put(id, normalized);
+            grams(normalized, 1).forEach(gram -> postings.computeIfAbsent(gram, key -> new IntPostings()).add(id));
+        }
+
+        void remove(int id) {
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+            for (long gram : grams(text, 1)) {
+                IntPostings ids = postings.get(gram);
+                ids.remove(id);
+                if (ids.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+
+        int[] search(String query) {
+            String normalized = normalize(query);
+            if (normalized.isEmpty()) {
+                return texts.keySet().stream()
+                        .mapToInt(Integer::intValue)
+                        .sorted()
+                        .toArray();
+            }
+            if (normalized.length() < GRAM_LENGTH) {
+                IntPostings ids = postings.get(gram(normalized, 0, normalized.length()));
+                return ids == null ? new int[0] : ids.toArray();
+            }
+            List<IntPostings> lists = new ArrayList<>();
+            for (long gram : grams(normalized, GRAM_LENGTH)) {
+                IntPostings ids = postings.get(gram);
+                if (ids == null) {
+                    return new int[0];
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(IntPostings::size));
+            int[] candidates = lists.get(0).toArray();
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                candidates = IntPostings.intersect(candidates, lists.get(i));
+            }
+            return Arrays.stream(candidates)
+                    .filter(id -> texts.get(id).contains(normalized))
+                    .toArray();
+        }
+    }
+}
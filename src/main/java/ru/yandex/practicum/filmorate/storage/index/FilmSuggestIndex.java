@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Component
+public class FilmSuggestIndex {
+
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private PrefixIndex films = new PrefixIndex();
+
+    private PrefixIndex directors = new PrefixIndex();
+
+    private Map<Integer, Set<Integer>> directorsByFilm = new HashMap<>();
+
+    private List<Consumer<FilmSuggestIndex>> pending;
+
+    public FilmSuggestIndex(@Value("${filmorate.suggest-index.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void rebuild(Consumer<FilmSuggestIndex> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        FilmSuggestIndex rebuilt = new FilmSuggestIndex(true);
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    films = rebuilt.films;
+                    directors = rebuilt.directors;
+                    directorsByFilm = rebuilt.directorsByFilm;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void saveFilm(int filmId, String name, double rating, Collection<Integer> directorIds) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> index.putFilm(filmId, name, rating, directorIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateRatings(Map<Integer, Double> ratings) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> ratings.forEach(index.films::setPopularity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                index.films.remove(filmId);
+                index.unlinkFilm(filmId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void saveDirector(int directorId, String name) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> index.directors.put(directorId, name, index.directors.getPopularity(directorId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                index.directors.remove(directorId);
+                index.directorsByFilm.values().forEach(filmDirectors -> filmDirectors.remove(directorId));
+                index.directorsByFilm.values().removeIf(Set::isEmpty);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggestFilms(String prefix, int count) {
+        lock.readLock().lock();
+        try {
+            return films.suggest(prefix, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggestDirectors(String prefix, int count) {
+        lock.readLock().lock();
+        try {
+            return directors.suggest(prefix, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<FilmSuggestIndex> operation) {
+        operation.accept(this);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    private void putFilm(int filmId, String name, double rating, Collection<Integer> directorIds) {
+        films.put(filmId, name, rating);
+        unlinkFilm(filmId);
+        if (!directorIds.isEmpty()) {
+            Set<Integer> filmDirectors = new HashSet<>(directorIds);
+            directorsByFilm.put(filmId, filmDirectors);
+            filmDirectors.forEach(directorId -> directors.addPopularity(directorId, 1));
+        }
+    }
+
+    private void unlinkFilm(int filmId) {
+        Set<Integer> filmDirectors = directorsByFilm.remove(filmId);
+        if (filmDirectors != null) {
+            filmDirectors.forEach(directorId -> directors.addPopularity(directorId, -1));
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toUpperCase(Locale.ROOT);
+    }
+
+    private static class PrefixIndex {
+
+        private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingDouble(Entry::getPopularity)
+                .reversed()
+                .thenComparingInt(Entry::getId);
+
+        private final Map<Integer, Entry> entries = new HashMap<>();
+
+        private final NavigableSet<Key> keys = new TreeSet<>();
+
+        private final NavigableSet<Entry> ranking = new TreeSet<>(BY_POPULARITY);
+
+        void put(int id, String name, double popularity) {
+            remove(id);
+            Entry entry = new Entry(id, name, normalize(name), popularity);
+            entries.put(id, entry);
+            ranking.add(entry);
+            entry.getKeys().forEach(keys::add);
+        }
+
+        void remove(int id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                ranking.remove(entry);
+                entry.getKeys().forEach(keys::remove);
+            }
+        }
+
+        double getPopularity(int id) {
+            Entry entry = entries.get(id);
+            return entry == null ? 0 : entry.getPopularity();
+        }
+
+        void setPopularity(int id, double popularity) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return;
+            }
+            ranking.remove(entry);
+            Entry updated = new Entry(id, entry.getName(), entry.getText(), popularity);
+            entries.put(id, updated);
+            ranking.add(updated);
+        }
+
+        void addPopularity(int id, double delta) {
+            setPopularity(id, getPopularity(id) + delta);
+        }
+
+        List<Suggestion> suggest(String prefix, int count) {
+            String normalized = normalize(prefix);
+            Set<Integer> matched = new HashSet<>();
+            List<Entry> found = new ArrayList<>(count);
+            Iterator<Key> range = keys.tailSet(new Key(normalized, Integer.MIN_VALUE), true).iterator();
+            Iterator<Entry> ranked = ranking.iterator();
+            while (true) {
+                Key key = range.hasNext() ? range.next() : null;
+                if (key == null || !key.getText().startsWith(normalized)) {
+                    return matched.stream()
+                            .map(entries::get)
+                            .sorted(BY_POPULARITY)
+                            .limit(count)
+                            .map(Entry::toSuggestion)
+                            .collect(Collectors.toList());
+                }
+                matched.add(key.getId());
+                if (ranked.hasNext()) {
+                    Entry entry = ranked.next();
+                    if (entry.matches(normalized)) {
+                        found.add(entry);
+                    }
+                    if (found.size() == count) {
+                        return found.stream().map(Entry::toSuggestion).collect(Collectors.toList());
+                    }
+                }
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final int id;
+        private final String name;
+        private final String text;
+        private final double popularity;
+
+        List<Key> getKeys() {
+            List<Key> keys = new ArrayList<>();
+            keys.add(new Key(text, id));
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == ' ') {
+                    keys.add(new Key(text.substring(i + 1), id));
+                }
+            }
+            return keys;
+        }
+
+        boolean matches(String prefix) {
+            int start = 0;
+            while (start >= 0) {
+                if (text.startsWith(prefix, start)) {
+                    return true;
+                }
+                start = text.indexOf(' ', start);
+                start = start < 0 ? start : start + 1;
+            }
+            return false;
+        }
+
+        Suggestion toSuggestion() {
+            return new Suggestion(id, name);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Key implements Comparable<Key> {
+        private final String text;
+        private final int id;
+
+        @Override
+        public int compareTo(Key other) {
+            int result = text.compareTo(other.text);
+            return result != 0 ? result : Integer.compare(id, other.id);
+        }
+    }
+}
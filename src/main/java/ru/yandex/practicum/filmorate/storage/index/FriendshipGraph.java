@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+@Component
+public class FriendshipGraph {
+
+    private static final int APPROVED = 1;
+
+    private static final double PHASE_STEP = 0.6180339887498949;
+
+    private static final IntPostings EMPTY = new IntPostings();
+
+    private final boolean enabled;
+    private final int maxFriends;
+    private final int maxVisits;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, IntPostings> friends = new HashMap<>();
+
+    private Map<Integer, IntPostings> followers = new HashMap<>();
+
+    private List<Consumer<FriendshipGraph>> pending;
+
+    public FriendshipGraph(@Value("${filmorate.friendship-graph.enabled:false}") boolean enabled,
+                           @Value("${filmorate.friendship-graph.suggestions.max-friends:500}") int maxFriends,
+                           @Value("${filmorate.friendship-graph.suggestions.max-visits:50000}") int maxVisits) {
+        this.enabled = enabled;
+        this.maxFriends = maxFriends;
+        this.maxVisits = maxVisits;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void rebuild(Consumer<FriendshipGraph> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        FriendshipGraph rebuilt = new FriendshipGraph(true, maxFriends, maxVisits);
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    friends = rebuilt.friends;
+                    followers = rebuilt.followers;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void saveFriend(int userId, int friendId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(graph -> graph.link(userId, friendId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(graph -> {
+                graph.unlink(userId, friendId);
+                graph.unlink(friendId, userId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(graph -> graph.unlinkUser(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFriend(int userId, int friendId) {
+        lock.readLock().lock();
+        try {
+            IntPostings userFriends = friends.getOrDefault(userId, EMPTY);
+            return userFriends.contains(friendId << 1) || userFriends.contains(friendId << 1 | APPROVED);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isApproved(int userId, int friendId) {
+        lock.readLock().lock();
+        try {
+            return friends.getOrDefault(userId, EMPTY).contains(friendId << 1 | APPROVED);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findFriendIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return decode(friends.getOrDefault(userId, EMPTY));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findCommonFriendIds(int userId, int otherUserId) {
+        lock.readLock().lock();
+        try {
+            IntPostings first = friends.getOrDefault(userId, EMPTY);
+            IntPostings second = friends.getOrDefault(otherUserId, EMPTY);
+            int[] result = new int[Math.min(first.size(), second.size())];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < first.size() && j < second.size()) {
+                int firstId = first.get(i) >>> 1;
+                int secondId = second.get(j) >>> 1;
+                if (firstId < secondId) {
+                    i++;
+                } else if (firstId > secondId) {
+                    j++;
+                } else {
+                    result[count++] = firstId;
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findSuggestions(int userId, int count) {
+        lock.readLock().lock();
+        try {
+            return findSuggestions(userId, count, decode(friends.getOrDefault(userId, EMPTY)),
+                    friendId -> decode(friends.getOrDefault(friendId, EMPTY)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findSuggestions(int userId, int count, int[] friendIds, IntFunction<int[]> friendsOf) {
+        int sampled = Math.min(friendIds.length, maxFriends);
+        if (sampled == 0) {
+            return new int[0];
+        }
+        double step = (double) friendIds.length / sampled;
+        int visitsPerFriend = Math.max(1, maxVisits / sampled);
+        IntCounter mutualFriends = new IntCounter(Math.min(maxVisits, sampled * 16));
+        int visits = 0;
+        for (int i = 0; i < sampled && visits < maxVisits; i++) {
+            int[] secondDegree = friendsOf.apply(friendIds[(int) (i * step)]);
+            int limit = Math.min(secondDegree.length, Math.min(visitsPerFriend, maxVisits - visits));
+            double secondStep = (double) secondDegree.length / limit;
+            double phase = i * PHASE_STEP % 1;
+            for (int j = 0; j < limit; j++) {
+                int candidateId = secondDegree[(int) ((j + phase) * secondStep)];
+                if (candidateId != userId && Arrays.binarySearch(friendIds, candidateId) < 0) {
+                    mutualFriends.increment(candidateId);
+                }
+            }
+            visits += limit;
+        }
+        return mutualFriends.top(count);
+    }
+
+    private void apply(Consumer<FriendshipGraph> operation) {
+        operation.accept(this);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    private void link(int userId, int friendId) {
+        IntPostings friendFriends = friends.getOrDefault(friendId, EMPTY);
+        boolean approved = friendFriends.contains(userId << 1) || friendFriends.contains(userId << 1 | APPROVED);
+        if (approved) {
+            friendFriends.remove(userId << 1);
+            friendFriends.add(userId << 1 | APPROVED);
+        }
+        IntPostings userFriends = friends.computeIfAbsent(userId, id -> new IntPostings());
+        userFriends.remove(friendId << 1);
+        userFriends.remove(friendId << 1 | APPROVED);
+        userFriends.add(approved ? friendId << 1 | APPROVED : friendId << 1);
+        followers.computeIfAbsent(friendId, id -> new IntPostings()).add(userId);
+    }
+
+    private void unlinkUser(int userId) {
+        for (int friendId : decode(friends.getOrDefault(userId, EMPTY))) {
+            unlink(userId, friendId);
+        }
+        for (int followerId : followers.getOrDefault(userId, EMPTY).toArray()) {
+            unlink(followerId, userId);
+        }
+    }
+
+    private void unlink(int userId, int friendId) {
+        IntPostings userFriends = friends.get(userId);
+        if (userFriends != null) {
+            userFriends.remove(friendId << 1);
+            userFriends.remove(friendId << 1 | APPROVED);
+            if (userFriends.size() == 0) {
+                friends.remove(userId);
+            }
+        }
+        IntPostings friendFollowers = followers.get(friendId);
+        if (friendFollowers != null) {
+            friendFollowers.remove(userId);
+            if (friendFollowers.size() == 0) {
+                followers.remove(friendId);
+            }
+        }
+        IntPostings friendFriends = friends.get(friendId);
+        if (friendFriends != null && friendFriends.contains(userId << 1 | APPROVED)) {
+            friendFriends.remove(userId << 1 | APPROVED);
+            friendFriends.add(userId << 1);
+        }
+    }
+
+    private static int[] decode(IntPostings postings) {
+        int[] ids = new int[postings.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = postings.get(i) >>> 1;
+        }
+        return ids;
+    }
+}
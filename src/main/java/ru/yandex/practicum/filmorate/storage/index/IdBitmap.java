@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public class IdBitmap {
+
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private BitSet ids = new BitSet();
+
+    private List<Consumer<BitSet>> pending;
+
+    public IdBitmap(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public synchronized void rebuild(Consumer<IntConsumer> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        BitSet rebuilt = new BitSet();
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt::set);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    ids = rebuilt;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void add(int id) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(bits -> bits.set(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(bits -> bits.clear(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<Integer> removedIds) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(bits -> removedIds.forEach(bits::clear));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Integer> findMissing(Collection<Integer> checkedIds) {
+        Set<Integer> missing = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (Integer id : checkedIds) {
+                if (id == null || id < 0 || !ids.get(id)) {
+                    missing.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return missing;
+    }
+
+    private void apply(Consumer<BitSet> operation) {
+        operation.accept(ids);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+public class IdBitmaps {
+
+    private final boolean enabled;
+
+    private final IdBitmap films;
+
+    private final IdBitmap users;
+
+    private final IdBitmap reviews;
+
+    private final IdBitmap directors;
+
+    public IdBitmaps(@Value("${filmorate.id-bitmaps.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+        this.films = new IdBitmap(enabled);
+        this.users = new IdBitmap(enabled);
+        this.reviews = new IdBitmap(enabled);
+        this.directors = new IdBitmap(enabled);
+    }
+}
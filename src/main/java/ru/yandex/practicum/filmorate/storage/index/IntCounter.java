@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+
+class IntCounter {
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void increment(int key) {
+        int index = indexOf(key, keys);
+        if (keys[index] == FREE) {
+            keys[index] = key;
+            size++;
+            if (size * 4 > keys.length * 3) {
+                grow();
+            }
+            index = indexOf(key, keys);
+        }
+        counts[index]++;
+    }
+
+    int[] top(int count) {
+        long[] heap = new long[Math.min(count, size)];
+        int heapSize = 0;
+        for (int i = 0; i < keys.length && heap.length > 0; i++) {
+            if (keys[i] == FREE) {
+                continue;
+            }
+            long entry = (long) counts[i] << 32 | (Integer.MAX_VALUE - keys[i]);
+            if (heapSize < heap.length) {
+                heap[heapSize++] = entry;
+                siftUp(heap, heapSize - 1);
+            } else if (entry > heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        int[] result = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            result[i] = Integer.MAX_VALUE - (int) heap[heapSize - 1 - i];
+        }
+        return result;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int index = indexOf(oldKeys[i], keys);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int indexOf(int key, int[] keys) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int index = (hash ^ hash >>> 16) & mask;
+        while (keys[index] != FREE && keys[index] != key) {
+            index = index + 1 & mask;
+        }
+        return index;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int first, int second) {
+        long value = heap[first];
+        heap[first] = heap[second];
+        heap[second] = value;
+    }
+}
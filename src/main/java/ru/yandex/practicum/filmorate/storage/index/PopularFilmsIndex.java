@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Component
+public class PopularFilmsIndex {
+
+    private static final Comparator<IndexedFilm> BY_RATING = Comparator.comparingDouble(IndexedFilm::getRating)
+            .reversed()
+            .thenComparingInt(IndexedFilm::getFilmId);
+
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, IndexedFilm> films = new HashMap<>();
+
+    private NavigableSet<IndexedFilm> allFilms = new TreeSet<>(BY_RATING);
+
+    private Map<Integer, NavigableSet<IndexedFilm>> filmsByGenre = new HashMap<>();
+
+    private Map<Integer, NavigableSet<IndexedFilm>> filmsByYear = new HashMap<>();
+
+    private Map<Long, NavigableSet<IndexedFilm>> filmsByGenreAndYear = new HashMap<>();
+
+    private List<Consumer<PopularFilmsIndex>> pending;
+
+    public PopularFilmsIndex(@Value("${filmorate.popular-index.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void rebuild(Consumer<PopularFilmsIndex> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        PopularFilmsIndex rebuilt = new PopularFilmsIndex(true);
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    films = rebuilt.films;
+                    allFilms = rebuilt.allFilms;
+                    filmsByGenre = rebuilt.filmsByGenre;
+                    filmsByYear = rebuilt.filmsByYear;
+                    filmsByGenreAndYear = rebuilt.filmsByGenreAndYear;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void load(Collection<Film> films) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            this.films.clear();
+            allFilms.clear();
+            filmsByGenre.clear();
+            filmsByYear.clear();
+            filmsByGenreAndYear.clear();
+            films.forEach(film -> add(toIndexedFilm(film)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void save(Film film) {
+        if (!enabled) {
+            return;
+        }
+        IndexedFilm indexedFilm = toIndexedFilm(film);
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                Optional.ofNullable(index.films.get(film.getId())).ifPresent(index::remove);
+                index.add(indexedFilm);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateRatings(Map<Integer, Double> ratings) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> ratings.forEach((filmId, rating) -> {
+                IndexedFilm film = index.films.get(filmId);
+                if (film != null) {
+                    index.remove(film);
+                    index.add(new IndexedFilm(film.getFilmId(), film.getYear(), film.getGenreIds(), rating));
+                }
+            }));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> Optional.ofNullable(index.films.get(filmId)).ifPresent(index::remove));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> findPopular(int count, Optional<Integer> genreId, Optional<Integer> year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<IndexedFilm> bucket;
+            if (genreId.isPresent() && year.isPresent()) {
+                bucket = filmsByGenreAndYear.get(genreAndYearKey(genreId.get(), year.get()));
+            } else if (genreId.isPresent()) {
+                bucket = filmsByGenre.get(genreId.get());
+            } else if (year.isPresent()) {
+                bucket = filmsByYear.get(year.get());
+            } else {
+                bucket = allFilms;
+            }
+            if (bucket == null) {
+                return new ArrayList<>();
+            }
+            return bucket.stream().limit(count).map(IndexedFilm::getFilmId).collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> rank(Collection<Integer> filmIds, int count, double afterRating, int afterId) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<IndexedFilm> top = new PriorityQueue<>(BY_RATING.reversed());
+            for (int filmId : filmIds) {
+                IndexedFilm film = films.get(filmId);
+                if (film == null || film.getRating() > afterRating
+                        || film.getRating() == afterRating && film.getFilmId() <= afterId) {
+                    continue;
+                }
+                top.add(film);
+                if (top.size() > count) {
+                    top.poll();
+                }
+            }
+            return top.stream().sorted(BY_RATING).map(IndexedFilm::getFilmId).collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<PopularFilmsIndex> operation) {
+        operation.accept(this);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    private void add(IndexedFilm film) {
+        films.put(film.getFilmId(), film);
+        allFilms.add(film);
+        filmsByYear.computeIfAbsent(film.getYear(), year -> new TreeSet<>(BY_RATING)).add(film);
+        for (int genreId : film.getGenreIds()) {
+            filmsByGenre.computeIfAbsent(genreId, id -> new TreeSet<>(BY_RATING)).add(film);
+            filmsByGenreAndYear.computeIfAbsent(genreAndYearKey(genreId, film.getYear()),
+                    key -> new TreeSet<>(BY_RATING)).add(film);
+        }
+    }
+
+    private void remove(IndexedFilm film) {
+        films.remove(film.getFilmId());
+        allFilms.remove(film);
+        removeFromBucket(filmsByYear, film.getYear(), film);
+        for (int genreId : film.getGenreIds()) {
+            removeFromBucket(filmsByGenre, genreId, film);
+            removeFromBucket(filmsByGenreAndYear, genreAndYearKey(genreId, film.getYear()), film);
+        }
+    }
+
+    private <K> void removeFromBucket(Map<K, NavigableSet<IndexedFilm>> buckets, K key, IndexedFilm film) {
+        NavigableSet<IndexedFilm> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(film);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private IndexedFilm toIndexedFilm(Film film) {
+        Set<Integer> genreIds = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
+        double rating = film.getRating() == null ? 0.0 : film.getRating();
+        return new IndexedFilm(film.getId(), film.getReleaseDate().getYear(), genreIds, rating);
+    }
+
+    private static long genreAndYearKey(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class IndexedFilm {
+        private final int filmId;
+        private final int year;
+        private final Set<Integer> genreIds;
+        private final double rating;
+    }
+}
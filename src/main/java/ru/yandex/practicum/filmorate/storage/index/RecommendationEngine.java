@@ -0,0 +1,403 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Score;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Component
+public class RecommendationEngine {
+
+    private static final double NEUTRAL_SCORE = 5.5;
+
+    private static final double BASELINE_DAMPING = 2.0;
+
+    private static final double EPSILON = 1e-9;
+
+    private final boolean enabled;
+
+    private final int defaultCount;
+
+    private final double recentreTolerance;
+
+    private final int maxUserScores;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, UserScores> userScores = new HashMap<>();
+
+    private Map<Integer, SparseVector> itemProducts = new HashMap<>();
+
+    private SparseVector itemNorms = new SparseVector();
+
+    private Set<Integer> staleUsers = new LinkedHashSet<>();
+
+    private List<Consumer<RecommendationEngine>> pending;
+
+    public RecommendationEngine(@Value("${filmorate.recommendations.enabled:false}") boolean enabled,
+                                @Value("${filmorate.recommendations.count:10}") int defaultCount,
+                                @Value("${filmorate.recommendations.recentre-tolerance:0.25}") double recentreTolerance,
+                                @Value("${filmorate.recommendations.max-user-scores:200}") int maxUserScores) {
+        this.enabled = enabled;
+        this.defaultCount = defaultCount;
+        this.recentreTolerance = recentreTolerance;
+        this.maxUserScores = maxUserScores;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDefaultCount() {
+        return defaultCount;
+    }
+
+    public synchronized void rebuild(Consumer<RecommendationEngine> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        RecommendationEngine rebuilt = new RecommendationEngine(true, defaultCount, recentreTolerance, maxUserScores);
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    userScores = rebuilt.userScores;
+                    itemProducts = rebuilt.itemProducts;
+                    itemNorms = rebuilt.itemNorms;
+                    staleUsers = rebuilt.staleUsers;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void load(Collection<Score> scores) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            userScores.clear();
+            itemProducts.clear();
+            itemNorms.clear();
+            staleUsers.clear();
+            scores.forEach(score -> userScores.computeIfAbsent(score.getUserId(), id -> new UserScores())
+                    .put(score.getFilmId(), score.getScore()));
+            userScores.values().forEach(user -> {
+                int[] filmIds = user.scores.keys();
+                Arrays.sort(filmIds);
+                for (int i = filmIds.length - 1; i >= 0; i--) {
+                    (user.modelled.size() < maxUserScores ? user.modelled : user.overflow).add(filmIds[i]);
+                }
+                user.appliedBaseline = user.baseline();
+                applyUser(user, 1);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void saveScore(int userId, int filmId, int score) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(engine -> engine.saveToUser(userId, filmId, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void saveScores(Collection<Score> scores) {
+        if (!enabled) {
+            return;
+        }
+        Map<Integer, List<Score>> scoresByUser = scores.stream().collect(Collectors.groupingBy(Score::getUserId));
+        lock.writeLock().lock();
+        try {
+            apply(engine -> scoresByUser.forEach((userId, userScoresBatch) -> userScoresBatch
+                    .forEach(score -> engine.saveToUser(userId, score.getFilmId(), score.getScore()))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeScore(int userId, int filmId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(engine -> {
+                UserScores user = engine.userScores.get(userId);
+                if (user != null && user.scores.contains(filmId)) {
+                    engine.removeFromUser(userId, user, filmId);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(engine -> {
+                UserScores user = engine.userScores.remove(userId);
+                if (user != null) {
+                    engine.applyUser(user, -1);
+                    engine.staleUsers.remove(userId);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(engine -> {
+                new ArrayList<>(engine.userScores.entrySet()).stream()
+                        .filter(user -> user.getValue().scores.contains(filmId))
+                        .forEach(user -> engine.removeFromUser(user.getKey(), user.getValue(), filmId));
+                engine.itemProducts.remove(filmId);
+                engine.itemNorms.remove(filmId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.recentre-interval-ms:1000}")
+    public void recentre() {
+        if (!enabled) {
+            return;
+        }
+        while (true) {
+            lock.writeLock().lock();
+            try {
+                Iterator<Integer> iterator = staleUsers.iterator();
+                if (!iterator.hasNext()) {
+                    return;
+                }
+                UserScores user = userScores.get(iterator.next());
+                iterator.remove();
+                applyUser(user, -1);
+                user.appliedBaseline = user.baseline();
+                applyUser(user, 1);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public List<Integer> findRecommendations(int userId, int count) {
+        lock.readLock().lock();
+        try {
+            UserScores user = userScores.get(userId);
+            if (user == null) {
+                return new ArrayList<>();
+            }
+            double baseline = user.baseline();
+            SparseVector predictions = new SparseVector();
+            user.modelled.forEach(filmId -> {
+                double deviation = user.scores.get(filmId) - baseline;
+                SparseVector products = itemProducts.get(filmId);
+                if (Math.abs(deviation) < EPSILON || products == null) {
+                    return;
+                }
+                double norm = itemNorms.get(filmId);
+                products.forEach((otherFilmId, product) -> {
+                    double otherNorm = itemNorms.get(otherFilmId);
+                    if (product <= 0 || otherNorm < EPSILON || user.scores.contains(otherFilmId)) {
+                        return;
+                    }
+                    predictions.add(otherFilmId, product / Math.sqrt(norm * otherNorm) * deviation);
+                });
+            });
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(predictions.size());
+            predictions.forEach((filmId, prediction) -> {
+                if (prediction > 0) {
+                    ranked.add(Map.entry(filmId, prediction));
+                }
+            });
+            ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<Integer> filmIds = new ArrayList<>(Math.min(count, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < count; i++) {
+                filmIds.add(ranked.get(i).getKey());
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<RecommendationEngine> operation) {
+        operation.accept(this);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    private void saveToUser(int userId, int filmId, int score) {
+        UserScores user = userScores.computeIfAbsent(userId, id -> new UserScores());
+        if (user.scores.contains(filmId)) {
+            boolean modelled = user.modelled.contains(filmId);
+            if (modelled) {
+                applyScore(user, filmId, -1);
+            }
+            user.put(filmId, score);
+            if (modelled) {
+                applyScore(user, filmId, 1);
+            }
+        } else {
+            user.put(filmId, score);
+            if (user.modelled.size() < maxUserScores) {
+                user.modelled.add(filmId);
+                applyScore(user, filmId, 1);
+            } else if (filmId > user.modelled.first()) {
+                int evictedFilmId = user.modelled.first();
+                applyScore(user, evictedFilmId, -1);
+                user.modelled.remove(evictedFilmId);
+                user.overflow.add(evictedFilmId);
+                user.modelled.add(filmId);
+                applyScore(user, filmId, 1);
+            } else {
+                user.overflow.add(filmId);
+            }
+        }
+        markStale(userId, user);
+    }
+
+    private void removeFromUser(int userId, UserScores user, int filmId) {
+        if (user.modelled.contains(filmId)) {
+            applyScore(user, filmId, -1);
+            user.modelled.remove(filmId);
+            if (!user.overflow.isEmpty()) {
+                int restoredFilmId = user.overflow.pollLast();
+                user.modelled.add(restoredFilmId);
+                applyScore(user, restoredFilmId, 1);
+            }
+        } else {
+            user.overflow.remove(filmId);
+        }
+        user.remove(filmId);
+        if (user.scores.size() == 0) {
+            userScores.remove(userId);
+            staleUsers.remove(userId);
+        } else {
+            markStale(userId, user);
+        }
+    }
+
+    private void markStale(int userId, UserScores user) {
+        if (Math.abs(user.baseline() - user.appliedBaseline) > recentreTolerance) {
+            staleUsers.add(userId);
+        } else {
+            staleUsers.remove(userId);
+        }
+    }
+
+    private void applyScore(UserScores user, int filmId, int sign) {
+        double baseline = user.appliedBaseline;
+        double deviation = user.scores.get(filmId) - baseline;
+        itemNorms.add(filmId, sign * deviation * deviation);
+        if (Math.abs(deviation) < EPSILON) {
+            return;
+        }
+        SparseVector products = itemProducts.computeIfAbsent(filmId, id -> new SparseVector());
+        user.modelled.forEach(otherFilmId -> {
+            double otherDeviation = user.scores.get(otherFilmId) - baseline;
+            if (otherFilmId == filmId || Math.abs(otherDeviation) < EPSILON) {
+                return;
+            }
+            products.add(otherFilmId, sign * deviation * otherDeviation);
+            SparseVector otherProducts = itemProducts.computeIfAbsent(otherFilmId, id -> new SparseVector());
+            otherProducts.add(filmId, sign * deviation * otherDeviation);
+            if (otherProducts.size() == 0) {
+                itemProducts.remove(otherFilmId);
+            }
+        });
+        if (products.size() == 0) {
+            itemProducts.remove(filmId);
+        }
+    }
+
+    private void applyUser(UserScores user, int sign) {
+        int[] filmIds = user.modelled.stream().mapToInt(Integer::intValue).toArray();
+        double[] deviations = new double[filmIds.length];
+        for (int i = 0; i < filmIds.length; i++) {
+            deviations[i] = user.scores.get(filmIds[i]) - user.appliedBaseline;
+            itemNorms.add(filmIds[i], sign * deviations[i] * deviations[i]);
+        }
+        for (int i = 0; i < filmIds.length; i++) {
+            if (Math.abs(deviations[i]) < EPSILON) {
+                continue;
+            }
+            SparseVector products = itemProducts.computeIfAbsent(filmIds[i], id -> new SparseVector());
+            for (int j = 0; j < filmIds.length; j++) {
+                if (i != j) {
+                    products.add(filmIds[j], sign * deviations[i] * deviations[j]);
+                }
+            }
+            if (products.size() == 0) {
+                itemProducts.remove(filmIds[i]);
+            }
+        }
+    }
+
+    private static final class UserScores {
+
+        private final SparseVector scores = new SparseVector();
+
+        private final TreeSet<Integer> modelled = new TreeSet<>();
+
+        private final TreeSet<Integer> overflow = new TreeSet<>();
+
+        private long sum;
+
+        private double appliedBaseline = NEUTRAL_SCORE;
+
+        private void put(int filmId, int score) {
+            sum += score - (long) scores.get(filmId);
+            scores.put(filmId, score);
+        }
+
+        private void remove(int filmId) {
+            sum -= (long) scores.get(filmId);
+            scores.remove(filmId);
+        }
+
+        private double baseline() {
+            return (sum + NEUTRAL_SCORE * BASELINE_DAMPING) / (scores.size() + BASELINE_DAMPING);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+class SparseVector {
+
+    private static final int FREE = 0;
+    private static final int MIN_CAPACITY = 4;
+    private static final double EPSILON = 1e-9;
+
+    private int[] keys;
+    private double[] values;
+    private int size;
+
+    SparseVector() {
+        keys = new int[MIN_CAPACITY];
+        values = new double[MIN_CAPACITY];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    double get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? 0.0 : values[index];
+    }
+
+    void put(int key, double value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Идентификатор должен быть положительным.");
+        }
+        int index = slot(key);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & (keys.length - 1);
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    void add(int key, double delta) {
+        int index = indexOf(key);
+        if (index < 0) {
+            if (Math.abs(delta) > EPSILON) {
+                put(key, delta);
+            }
+        } else if (Math.abs(values[index] + delta) > EPSILON) {
+            values[index] += delta;
+        } else {
+            removeAt(index);
+        }
+    }
+
+    void remove(int key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    void clear() {
+        keys = new int[MIN_CAPACITY];
+        values = new double[MIN_CAPACITY];
+        size = 0;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    int[] keys() {
+        int[] result = new int[size];
+        int position = 0;
+        for (int key : keys) {
+            if (key != FREE) {
+                result[position++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(int key) {
+        if (key == FREE) {
+            return -1;
+        }
+        int index = slot(key);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int mask = keys.length - 1;
+        int gap = index;
+        int next = (index + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        values[gap] = 0.0;
+        size--;
+        if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+            resize(keys.length / 2);
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new int[capacity];
+        values = new double[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & (keys.length - 1);
+    }
+
+    interface EntryConsumer {
+        void accept(int key, double value);
+    }
+}
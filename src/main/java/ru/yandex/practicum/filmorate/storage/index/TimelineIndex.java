@@ -0,0 +1,385 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.FeedsSavedEvent;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import javax.annotation.PreDestroy;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+@Slf4j
+public class TimelineIndex {
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final Comparator<Feed> BY_TIME = Comparator.comparing(Feed::getTimestamp)
+            .thenComparing(Feed::getEventId);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int fanOutLimit;
+    private final int replayLimit;
+    private final String snapshotFile;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Integer, Set<Integer>> friends = new HashMap<>();
+
+    private Map<Integer, Set<Integer>> followers = new HashMap<>();
+
+    private Map<Integer, ArrayDeque<Feed>> timelines = new HashMap<>();
+
+    private int lastEventId;
+
+    private List<Consumer<TimelineIndex>> pending;
+
+    public TimelineIndex(@Value("${filmorate.timeline.enabled:false}") boolean enabled,
+                         @Value("${filmorate.timeline.capacity:200}") int capacity,
+                         @Value("${filmorate.timeline.fan-out-limit:1000}") int fanOutLimit,
+                         @Value("${filmorate.timeline.replay-limit:1000000}") int replayLimit,
+                         @Value("${filmorate.timeline.snapshot-file:}") String snapshotFile) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.fanOutLimit = fanOutLimit;
+        this.replayLimit = replayLimit;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getReplayLimit() {
+        return replayLimit;
+    }
+
+    public synchronized void rebuild(Consumer<TimelineIndex> source) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TimelineIndex rebuilt = new TimelineIndex(true, capacity, fanOutLimit, replayLimit, snapshotFile);
+        boolean scanned = false;
+        try {
+            source.accept(rebuilt);
+            scanned = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (scanned) {
+                    pending.forEach(operation -> operation.accept(rebuilt));
+                    friends = rebuilt.friends;
+                    followers = rebuilt.followers;
+                    timelines = rebuilt.timelines;
+                    lastEventId = rebuilt.lastEventId;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            friends.clear();
+            followers.clear();
+            timelines.clear();
+            lastEventId = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void saveFriend(int userId, int friendId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                index.friends.computeIfAbsent(userId, id -> new HashSet<>()).add(friendId);
+                index.followers.computeIfAbsent(friendId, id -> new HashSet<>()).add(userId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                index.unlink(userId, friendId);
+                index.unlink(friendId, userId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index -> {
+                new ArrayList<>(index.friends.getOrDefault(userId, Set.of()))
+                        .forEach(friendId -> index.unlink(userId, friendId));
+                new ArrayList<>(index.followers.getOrDefault(userId, Set.of()))
+                        .forEach(followerId -> index.unlink(followerId, userId));
+                index.timelines.remove(userId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedsSaved(FeedsSavedEvent event) {
+        saveFeeds(event.getFeeds());
+    }
+
+    public void saveFeeds(Collection<Feed> feeds) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Feed> savedFeeds = new ArrayList<>(feeds);
+            apply(index -> {
+                for (Feed feed : savedFeeds) {
+                    Set<Integer> authorFollowers = index.followers.getOrDefault(feed.getUserId(), Set.of());
+                    if (authorFollowers.size() <= fanOutLimit) {
+                        authorFollowers.forEach(followerId -> index.push(followerId, feed));
+                    }
+                    index.lastEventId = Math.max(index.lastEventId, feed.getEventId());
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void backfill(int userId, Collection<Feed> feeds) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Feed> backfilledFeeds = new ArrayList<>(feeds);
+            apply(index -> backfilledFeeds.forEach(feed -> index.push(userId, feed)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Slice findTimeline(int userId, int limit, Timestamp beforeTimestamp, int beforeEventId) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> userFriends = friends.getOrDefault(userId, Set.of());
+            ArrayDeque<Feed> timeline = timelines.getOrDefault(userId, new ArrayDeque<>());
+            List<Feed> feeds = new ArrayList<>();
+            Iterator<Feed> iterator = timeline.descendingIterator();
+            while (iterator.hasNext() && feeds.size() < limit) {
+                Feed feed = iterator.next();
+                if (isBefore(feed, beforeTimestamp, beforeEventId) && userFriends.contains(feed.getUserId())) {
+                    feeds.add(feed);
+                }
+            }
+            Set<Integer> pulledAuthors = new HashSet<>();
+            for (int friendId : userFriends) {
+                if (followers.getOrDefault(friendId, Set.of()).size() > fanOutLimit) {
+                    pulledAuthors.add(friendId);
+                }
+            }
+            return new Slice(feeds, pulledAuthors, timeline.size() >= capacity ? timeline.peekFirst() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.timeline.snapshot-interval-ms:300000}",
+            initialDelayString = "${filmorate.timeline.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!enabled || snapshotFile.isBlank()) {
+            return;
+        }
+        Path file = Paths.get(snapshotFile);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp)))) {
+                writeSnapshot(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Снимок лент друзей сохранен, лент: {}.", timelines.size());
+        } catch (IOException e) {
+            log.error("Не удалось сохранить снимок лент друзей: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int loadSnapshot() {
+        if (!enabled || snapshotFile.isBlank() || !Files.exists(Paths.get(snapshotFile))) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(Paths.get(snapshotFile))))) {
+            readSnapshot(in);
+            log.info("Снимок лент друзей загружен, лент: {}.", timelines.size());
+            return lastEventId;
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Не удалось загрузить снимок лент друзей: {}", e.getMessage());
+            timelines.clear();
+            lastEventId = 0;
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void writeSnapshot(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(lastEventId);
+        out.writeInt(timelines.size());
+        for (Map.Entry<Integer, ArrayDeque<Feed>> timeline : timelines.entrySet()) {
+            out.writeInt(timeline.getKey());
+            out.writeInt(timeline.getValue().size());
+            for (Feed feed : timeline.getValue()) {
+                out.writeInt(feed.getEventId());
+                out.writeLong(feed.getTimestamp().getTime());
+                out.writeInt(feed.getTimestamp().getNanos());
+                out.writeInt(feed.getUserId());
+                out.writeInt(feed.getEntityId());
+                out.writeByte(feed.getEventType().getEventTypeId());
+                out.writeByte(feed.getOperation().getOperationId());
+            }
+        }
+        out.flush();
+    }
+
+    public void readSnapshot(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия снимка лент друзей.");
+        }
+        timelines.clear();
+        lastEventId = in.readInt();
+        int timelinesCount = in.readInt();
+        for (int i = 0; i < timelinesCount; i++) {
+            int userId = in.readInt();
+            int size = in.readInt();
+            ArrayDeque<Feed> timeline = new ArrayDeque<>(size);
+            for (int j = 0; j < size; j++) {
+                int eventId = in.readInt();
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                timeline.addLast(Feed.builder()
+                        .eventId(eventId)
+                        .timestamp(timestamp)
+                        .userId(in.readInt())
+                        .entityId(in.readInt())
+                        .eventType(EventType.findById(in.readByte()))
+                        .operation(Operation.findById(in.readByte()))
+                        .build());
+            }
+            timelines.put(userId, timeline);
+        }
+    }
+
+    private void apply(Consumer<TimelineIndex> operation) {
+        operation.accept(this);
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    private void push(int userId, Feed feed) {
+        ArrayDeque<Feed> timeline = timelines.computeIfAbsent(userId, id -> new ArrayDeque<>());
+        Deque<Feed> newer = new ArrayDeque<>();
+        while (!timeline.isEmpty() && BY_TIME.compare(timeline.peekLast(), feed) > 0) {
+            newer.addFirst(timeline.pollLast());
+        }
+        boolean duplicate = !timeline.isEmpty() && timeline.peekLast().getEventId().equals(feed.getEventId());
+        boolean tooOld = timeline.isEmpty() && newer.size() >= capacity;
+        if (!duplicate && !tooOld) {
+            timeline.addLast(feed);
+        }
+        timeline.addAll(newer);
+        while (timeline.size() > capacity) {
+            timeline.pollFirst();
+        }
+    }
+
+    private void unlink(int userId, int friendId) {
+        Set<Integer> userFriends = friends.get(userId);
+        if (userFriends != null && userFriends.remove(friendId) && userFriends.isEmpty()) {
+            friends.remove(userId);
+        }
+        Set<Integer> friendFollowers = followers.get(friendId);
+        if (friendFollowers != null && friendFollowers.remove(userId) && friendFollowers.isEmpty()) {
+            followers.remove(friendId);
+        }
+    }
+
+    private static boolean isBefore(Feed feed, Timestamp beforeTimestamp, int beforeEventId) {
+        int result = feed.getTimestamp().compareTo(beforeTimestamp);
+        return result < 0 || result == 0 && feed.getEventId() < beforeEventId;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Slice {
+        private final List<Feed> feeds;
+        private final Set<Integer> pulledAuthors;
+        private final Feed oldest;
+    }
+}
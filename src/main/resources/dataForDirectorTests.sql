@@ -15,4 +15,7 @@ DELETE FROM USERS;
 ALTER TABLE USERS ALTER COLUMN USER_ID RESTART WITH 1;
 INSERT INTO USERS VALUES ( 1, 'Name', 'Login', 'abc@bca.ru', '1986-04-13' );
 DELETE FROM FILM_SCORE;
-INSERT INTO FILM_SCORE VALUES ( 2, 1, 10 );
\ No newline at end of file
+INSERT INTO FILM_SCORE VALUES ( 2, 1, 10 );
+DELETE FROM FILM_RATING_STATS;
+INSERT INTO FILM_RATING_STATS (FILM_ID, SCORE_SUM, SCORE_COUNT)
+SELECT FILM_ID, SUM(SCORE), COUNT(*) FROM FILM_SCORE GROUP BY FILM_ID;
\ No newline at end of file
@@ -14,6 +14,9 @@ INSERT INTO FILM_SCORE VALUES ( 2, 2, 5 );
 INSERT INTO FILM_SCORE VALUES ( 2, 1, 10 );
 INSERT INTO FILM_SCORE VALUES ( 4, 2, 4 );
 INSERT INTO FILM_SCORE VALUES ( 4, 1, 2 );
+DELETE FROM FILM_RATING_STATS;
+INSERT INTO FILM_RATING_STATS (FILM_ID, SCORE_SUM, SCORE_COUNT)
+SELECT FILM_ID, SUM(SCORE), COUNT(*) FROM FILM_SCORE GROUP BY FILM_ID;
 DELETE FROM FILM_GENRES;
 INSERT INTO FILM_GENRES VALUES ( 1, 1 );
 INSERT INTO FILM_GENRES VALUES ( 2, 1 );
@@ -9,9 +9,10 @@ ALTER TABLE USERS ALTER COLUMN USER_ID RESTART WITH 1;
 INSERT INTO USERS VALUES ( 1, 'Name', 'Login', 'abc@bca.ru', '1986-04-13' );
 INSERT INTO USERS VALUES ( 2, 'Other_Name', 'Other_Login', 'zxy@yxz.ru', '1985-04-13' );
 DELETE FROM REVIEWS;
-insert into REVIEWS values (2, 'other content', 2, 2, 'true');
-insert into REVIEWS values (3, 'last content', 1, 2, 'false');
-insert into REVIEWS values (4, 'with like content', 2, 1, 'true');
-insert into REVIEWS values (5, 'with like content', 1, 3, 'false');
+insert into REVIEWS values (2, 'other content', 2, 2, 'true', 0);
+insert into REVIEWS values (3, 'last content', 1, 2, 'false', 0);
+insert into REVIEWS values (4, 'with like content', 2, 1, 'true', 0);
+insert into REVIEWS values (5, 'with like content', 1, 3, 'false', 0);
 INSERT INTO REVIEWS_LIKES values (1, 4, 1);
-INSERT INTO REVIEWS_LIKES values (2, 5, -1)
+INSERT INTO REVIEWS_LIKES values (2, 5, -1);
+UPDATE REVIEWS R SET USEFUL = (SELECT COALESCE(SUM(RL.USEFUL), 0) FROM REVIEWS_LIKES RL WHERE RL.REVIEW_ID = R.REVIEW_ID);
\ No newline at end of file
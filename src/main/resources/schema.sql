@@ -1,4 +1,4 @@
-DROP TABLE IF EXISTS GENRES, MPA, FRIENDSHIP_STATUS, PUBLIC.DIRECTORS, FILM_GENRES, FILM_SCORE,
+DROP TABLE IF EXISTS GENRES, MPA, FRIENDSHIP_STATUS, PUBLIC.DIRECTORS, FILM_GENRES, FILM_SCORE, FILM_RATING_STATS,
     LIST_OF_FRIENDS, REVIEWS, PUBLIC.REVIEWS_LIKES, PUBLIC.FILM_DIRECTOR, EVENT_TYPE, OPERATION_FOR_FEEDS, FEEDS, FILMS, USERS;
 
 CREATE TABLE IF NOT EXISTS GENRES
@@ -36,6 +36,8 @@ CREATE TABLE IF NOT EXISTS FILMS
     CONSTRAINT CHECK_FILM UNIQUE (NAME, RELEASE_DATE, DESCRIPTION)
 );
 
+CREATE INDEX IF NOT EXISTS FILMS_RELEASE_DATE_IDX ON FILMS (RELEASE_DATE);
+
 CREATE TABLE IF NOT EXISTS USERS
 (
     USER_ID  INTEGER AUTO_INCREMENT PRIMARY KEY,
@@ -52,6 +54,8 @@ CREATE TABLE IF NOT EXISTS FILM_GENRES
     CONSTRAINT FILM_GENRES_PK PRIMARY KEY (FILM_ID, GENRE_ID)
 );
 
+CREATE INDEX IF NOT EXISTS FILM_GENRES_GENRE_IDX ON FILM_GENRES (GENRE_ID, FILM_ID);
+
 CREATE TABLE IF NOT EXISTS FILM_SCORE
 (
     FILM_ID INTEGER NOT NULL REFERENCES FILMS (FILM_ID) ON DELETE CASCADE,
@@ -61,6 +65,19 @@ CREATE TABLE IF NOT EXISTS FILM_SCORE
     CONSTRAINT SCORE_CHECK CHECK (SCORE > 0 AND SCORE <= 10)
 );
 
+CREATE INDEX IF NOT EXISTS FILM_SCORE_USER_IDX ON FILM_SCORE (USER_ID, FILM_ID, SCORE);
+
+CREATE TABLE IF NOT EXISTS FILM_RATING_STATS
+(
+    FILM_ID     INTEGER NOT NULL PRIMARY KEY REFERENCES FILMS (FILM_ID) ON DELETE CASCADE,
+    SCORE_SUM   BIGINT  NOT NULL,
+    SCORE_COUNT INTEGER NOT NULL,
+    RATING      DOUBLE PRECISION GENERATED ALWAYS AS (CAST(SCORE_SUM AS DOUBLE PRECISION) / SCORE_COUNT),
+    CONSTRAINT SCORE_COUNT_CHECK CHECK (SCORE_COUNT > 0)
+);
+
+CREATE INDEX IF NOT EXISTS FILM_RATING_STATS_RATING_IDX ON FILM_RATING_STATS (RATING DESC, FILM_ID);
+
 CREATE TABLE IF NOT EXISTS LIST_OF_FRIENDS
 (
     FRIEND_ID            INTEGER NOT NULL REFERENCES USERS (USER_ID) ON DELETE CASCADE,
@@ -70,6 +87,8 @@ CREATE TABLE IF NOT EXISTS LIST_OF_FRIENDS
     CONSTRAINT CHECK_NAME CHECK ("USER_ID" <> "FRIEND_ID")
 );
 
+CREATE INDEX IF NOT EXISTS LIST_OF_FRIENDS_FRIEND_IDX ON LIST_OF_FRIENDS (FRIEND_ID, USER_ID);
+
 CREATE TABLE IF NOT EXISTS REVIEWS
 (
     REVIEW_ID   INTEGER AUTO_INCREMENT PRIMARY KEY,
@@ -77,9 +96,14 @@ CREATE TABLE IF NOT EXISTS REVIEWS
     USER_ID     INTEGER NOT NULL REFERENCES PUBLIC.USERS (USER_ID) ON DELETE CASCADE,
     FILM_ID     INTEGER NOT NULL REFERENCES PUBLIC.FILMS (FILM_ID) ON DELETE CASCADE,
     IS_POSITIVE BOOLEAN NOT NULL,
+    USEFUL      INTEGER NOT NULL DEFAULT 0,
     CONSTRAINT REVIEWS_UNIQUE UNIQUE (USER_ID, FILM_ID, CONTENT)
 );
 
+CREATE INDEX IF NOT EXISTS REVIEWS_USEFUL_IDX ON REVIEWS (USEFUL DESC, REVIEW_ID);
+
+CREATE INDEX IF NOT EXISTS REVIEWS_FILM_USEFUL_IDX ON REVIEWS (FILM_ID, USEFUL DESC, REVIEW_ID);
+
 CREATE TABLE IF NOT EXISTS PUBLIC.REVIEWS_LIKES
 (
     USER_ID   INTEGER NOT NULL REFERENCES USERS (USER_ID) ON UPDATE CASCADE ON DELETE CASCADE,
@@ -89,6 +113,8 @@ CREATE TABLE IF NOT EXISTS PUBLIC.REVIEWS_LIKES
     CONSTRAINT CHECK_LIKES CHECK ("USEFUL" IN (1, -1))
 );
 
+CREATE INDEX IF NOT EXISTS REVIEWS_LIKES_REVIEW_IDX ON REVIEWS_LIKES (REVIEW_ID, USER_ID);
+
 CREATE TABLE IF NOT EXISTS PUBLIC.FILM_DIRECTOR
 (
     FILM_ID     INTEGER NOT NULL REFERENCES PUBLIC.FILMS ON DELETE CASCADE,
@@ -96,6 +122,8 @@ CREATE TABLE IF NOT EXISTS PUBLIC.FILM_DIRECTOR
     PRIMARY KEY (DIRECTOR_ID, FILM_ID)
 );
 
+CREATE INDEX IF NOT EXISTS FILM_DIRECTOR_FILM_IDX ON FILM_DIRECTOR (FILM_ID, DIRECTOR_ID);
+
 CREATE TABLE IF NOT EXISTS EVENT_TYPE
 (
     EVENT_TYPE_ID INTEGER AUTO_INCREMENT PRIMARY KEY,
@@ -115,5 +143,10 @@ CREATE TABLE IF NOT EXISTS FEEDS
     USER_ID       INTEGER REFERENCES USERS (USER_ID) ON DELETE CASCADE,
     ENTITY_ID     INTEGER,
     EVENT_TYPE_ID INTEGER REFERENCES EVENT_TYPE (EVENT_TYPE_ID) ON DELETE CASCADE,
-    OPERATION_ID  INTEGER REFERENCES OPERATION_FOR_FEEDS (OPERATION_ID) ON DELETE CASCADE
-);
\ No newline at end of file
+    OPERATION_ID  INTEGER REFERENCES OPERATION_FOR_FEEDS (OPERATION_ID) ON DELETE CASCADE,
+    FEED_MONTH    INTEGER GENERATED ALWAYS AS (EXTRACT(YEAR FROM "TIMESTAMP") * 100 + EXTRACT(MONTH FROM "TIMESTAMP"))
+);
+
+CREATE INDEX IF NOT EXISTS FEEDS_USER_TIMESTAMP_IDX ON FEEDS (USER_ID, TIMESTAMP, EVENT_ID);
+
+CREATE INDEX IF NOT EXISTS FEEDS_MONTH_IDX ON FEEDS (FEED_MONTH, EVENT_ID);
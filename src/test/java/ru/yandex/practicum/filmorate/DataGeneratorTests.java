@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class DataGeneratorTests {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final FilmStorage filmStorage;
+
+    private GeneratorSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        settings = new GeneratorSettings();
+        settings.setUsers(300);
+        settings.setFilms(100);
+        settings.setDirectors(10);
+        settings.setReviews(150);
+        settings.setBatchSize(64);
+    }
+
+    @Test
+    void generateFillsTables() {
+        new DataGenerator(jdbcTemplate).generate(settings);
+        Assertions.assertEquals(300, count("USERS"), "Ошибка при генерации пользователей.");
+        Assertions.assertEquals(100, count("FILMS"), "Ошибка при генерации фильмов.");
+        Assertions.assertEquals(10, count("DIRECTORS"), "Ошибка при генерации режиссеров.");
+        Assertions.assertEquals(150, count("REVIEWS"), "Ошибка при генерации отзывов.");
+        Assertions.assertTrue(count("FILM_SCORE") > 0 && count("LIST_OF_FRIENDS") > 0 && count("REVIEWS_LIKES") > 0
+                        && count("FILM_GENRES") > 0 && count("FILM_DIRECTOR") > 0,
+                "Ошибка при генерации связей.");
+        Assertions.assertEquals(count("FILM_SCORE") + count("LIST_OF_FRIENDS") + count("REVIEWS"), count("FEEDS"),
+                "Ошибка при генерации ленты событий.");
+    }
+
+    @Test
+    void generateIsReproducible() {
+        new DataGenerator(jdbcTemplate).generate(settings);
+        List<Long> firstChecksums = checksums();
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                new ClassPathResource("data.sql"));
+        populator.execute(dataSource);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        Assertions.assertEquals(firstChecksums, checksums(), "Ошибка при повторной генерации с тем же зерном.");
+    }
+
+    @Test
+    void generateKeepsAggregatesConsistent() {
+        new DataGenerator(jdbcTemplate).generate(settings);
+        Assertions.assertTrue(filmStorage.findRatingStatsDrift().isEmpty(),
+                "Ошибка при генерации агрегата оценок фильмов.");
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM REVIEWS R WHERE R.USEFUL <> " +
+                        "(SELECT COALESCE(SUM(RL.USEFUL), 0) FROM REVIEWS_LIKES RL WHERE RL.REVIEW_ID = R.REVIEW_ID)",
+                Integer.class), "Ошибка при генерации полезности отзывов.");
+    }
+
+    @Test
+    void generateSkewsPopularity() {
+        new DataGenerator(jdbcTemplate).generate(settings);
+        Integer topFilmsScores = jdbcTemplate.queryForObject("SELECT SUM(SCORE_COUNT) FROM " +
+                "(SELECT SCORE_COUNT FROM FILM_RATING_STATS ORDER BY SCORE_COUNT DESC LIMIT 10)", Integer.class);
+        Assertions.assertTrue(topFilmsScores * 5 > count("FILM_SCORE"),
+                "Ошибка при генерации распределения популярности фильмов.");
+    }
+
+    @Test
+    void generateAppendsToExistingData() {
+        new DataGenerator(jdbcTemplate).generate(settings);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        Assertions.assertEquals(600, count("USERS"), "Ошибка при повторной генерации в заполненную базу.");
+        Assertions.assertEquals(201, jdbcTemplate.queryForObject("SELECT MAX(FILM_ID) + 1 FROM FILMS", Integer.class),
+                "Ошибка при повторной генерации в заполненную базу.");
+    }
+
+    private int count(String table) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private List<Long> checksums() {
+        return List.of(
+                jdbcTemplate.queryForObject("SELECT SUM(FILM_ID * 31 + USER_ID * 17 + SCORE) FROM FILM_SCORE", Long.class),
+                jdbcTemplate.queryForObject("SELECT SUM(FRIEND_ID * 31 + USER_ID) FROM LIST_OF_FRIENDS", Long.class),
+                jdbcTemplate.queryForObject("SELECT SUM(REVIEW_ID * 31 + USER_ID * 17 + FILM_ID) FROM REVIEWS", Long.class),
+                jdbcTemplate.queryForObject("SELECT SUM(REVIEW_ID * 31 + USER_ID * 3 + USEFUL) FROM REVIEWS_LIKES", Long.class),
+                jdbcTemplate.queryForObject("SELECT SUM(FILM_ID * 31 + GENRE_ID) FROM FILM_GENRES", Long.class),
+                jdbcTemplate.queryForObject("SELECT SUM(FILM_ID * 31 + DURATION + MPA_ID) FROM FILMS", Long.class));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.service.FeedArchiveService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.feed.retention-months=2",
+        "filmorate.feed.archive-dir=target/feed-archive-tests"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class FeedArchiveTests {
+
+    private final FeedArchiveService feedArchiveService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearArchive() throws IOException {
+        Path archiveDir = Paths.get("target/feed-archive-tests");
+        if (Files.exists(archiveDir)) {
+            try (Stream<Path> files = Files.walk(archiveDir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findFeedSkipsExpiredEvents() {
+        insertFeed(1, 1, 0);
+        insertFeed(1, 2, 1);
+        insertFeed(1, 3, 5);
+        Assertions.assertEquals(List.of(2, 1), toEntityIds(userService.findFeed(1)),
+                "Ошибка при получении ленты с устаревшими событиями.");
+        Assertions.assertEquals(List.of(2, 1), toEntityIds(userService.findFeed(1, Optional.of(10), Optional.empty())
+                        .getItems()),
+                "Ошибка при постраничном получении ленты с устаревшими событиями.");
+    }
+
+    @Test
+    void compactArchivesExpiredMonths() throws IOException {
+        insertFeed(1, 1, 0);
+        insertFeed(1, 2, 1);
+        insertFeed(1, 3, 5);
+        insertFeed(2, 4, 5);
+        insertFeed(2, 5, 13);
+        int fifthMonth = toMonth(5);
+        int thirteenthMonth = toMonth(13);
+        Assertions.assertEquals(List.of(thirteenthMonth, fifthMonth), feedArchiveService.compact(),
+                "Ошибка при архивации событий ленты.");
+        Assertions.assertEquals(List.of(3, 4), readArchive(fifthMonth), "Ошибка при архивации событий ленты.");
+        Assertions.assertEquals(List.of(5), readArchive(thirteenthMonth), "Ошибка при архивации событий ленты.");
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FEEDS", Integer.class),
+                "Ошибка при удалении архивированных событий ленты.");
+        Assertions.assertTrue(feedArchiveService.compact().isEmpty(), "Ошибка при повторной архивации событий ленты.");
+        insertFeed(3, 6, 5);
+        Assertions.assertEquals(List.of(fifthMonth), feedArchiveService.compact(),
+                "Ошибка при архивации поздних событий ленты.");
+        Assertions.assertEquals(List.of(3, 4, 6), readArchive(fifthMonth),
+                "Ошибка при дописывании событий ленты в архив.");
+    }
+
+    private void insertFeed(int userId, int entityId, int monthsAgo) {
+        jdbcTemplate.update("INSERT INTO FEEDS (TIMESTAMP, USER_ID, ENTITY_ID, EVENT_TYPE_ID, OPERATION_ID) " +
+                        "VALUES (?, ?, ?, 1, 2)",
+                Timestamp.valueOf(YearMonth.now().minusMonths(monthsAgo).atDay(15).atTime(12, entityId)), userId, entityId);
+    }
+
+    private int toMonth(int monthsAgo) {
+        YearMonth month = YearMonth.now().minusMonths(monthsAgo);
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private List<Integer> readArchive(int month) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(feedArchiveService.getArchiveFile(month))),
+                StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(line -> Integer.valueOf(line.replaceAll(".*\"entityId\":(\\d+).*", "$1")))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<Integer> toEntityIds(Collection<Feed> feeds) {
+        return feeds.stream().map(Feed::getEntityId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,215 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.model.Score;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.impl.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.impl.FeedQueueStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.feed-queue.enabled=true", "filmorate.feed-queue.capacity=16",
+        "filmorate.feed-queue.batch-size=8", "filmorate.feed-queue.offer-timeout-ms=5000"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class FeedQueueStorageTests {
+
+    private static final int EVENTS_PER_USER = 300;
+
+    private final FeedQueueStorage feedStorage;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void findFeedSeesQueuedEvents() {
+        filmService.saveScore(new Score(1, 3, 6));
+        userService.saveFriend(3, 1);
+        Assertions.assertEquals("SCORE ADD 1, FRIEND ADD 1", toString(feedStorage.findFeed(3)),
+                "Ошибка при получении событий из очереди.");
+    }
+
+    @Test
+    void concurrentEventsKeepOrderPerUser() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int userId = 1; userId <= 3; userId++) {
+                int user = userId;
+                futures.add(executor.submit(() -> IntStream.range(0, EVENTS_PER_USER).forEach(entityId ->
+                        feedStorage.saveFeed(user, entityId, EventType.SCORE.getEventTypeId(),
+                                Operation.ADD.getOperationId()))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        List<Integer> expected = IntStream.range(0, EVENTS_PER_USER).boxed().collect(Collectors.toList());
+        for (int userId = 1; userId <= 3; userId++) {
+            Assertions.assertEquals(expected, feedStorage.findFeed(userId).stream()
+                            .map(Feed::getEntityId)
+                            .collect(Collectors.toList()),
+                    "Нарушен порядок событий пользователя " + userId);
+        }
+    }
+
+    @Test
+    void eventsOfRemovedUserDoNotBlockQueue() {
+        for (int i = 0; i < 20; i++) {
+            feedStorage.saveFeed(1 + i % 3, i, EventType.SCORE.getEventTypeId(), Operation.ADD.getOperationId());
+        }
+        feedStorage.saveFeed(99, 1, EventType.SCORE.getEventTypeId(), Operation.ADD.getOperationId());
+        Assertions.assertEquals(7, feedStorage.findFeed(1).size(), "Ошибка при записи событий из очереди.");
+        Assertions.assertEquals(20, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FEEDS", Integer.class),
+                "Ошибка при записи событий несуществующего пользователя.");
+    }
+
+    @Test
+    void stopFlushesQueue() {
+        try {
+            for (int i = 0; i < 50; i++) {
+                feedStorage.saveFeed(2, i, EventType.REVIEW.getEventTypeId(), Operation.UPDATE.getOperationId());
+            }
+            feedStorage.stop();
+            Assertions.assertEquals(50, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FEEDS", Integer.class),
+                    "Ошибка при записи событий во время остановки очереди.");
+            feedStorage.saveFeed(2, 50, EventType.REVIEW.getEventTypeId(), Operation.UPDATE.getOperationId());
+            Assertions.assertEquals(51, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FEEDS", Integer.class),
+                    "Ошибка при записи событий после остановки очереди.");
+        } finally {
+            feedStorage.start();
+        }
+    }
+
+    @Test
+    void fullQueueBlocksCallerInsteadOfWritingOutOfOrder() throws Exception {
+        RecordingFeedStorage storage = new RecordingFeedStorage(0);
+        FeedQueueStorage queueStorage = new FeedQueueStorage(storage, true, 2, 1, 10, 50);
+        queueStorage.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executor.submit(() -> IntStream.range(0, 10).forEach(entityId ->
+                    queueStorage.saveFeed(1, entityId, EventType.SCORE.getEventTypeId(),
+                            Operation.ADD.getOperationId())));
+            Assertions.assertThrows(TimeoutException.class, () -> future.get(300, TimeUnit.MILLISECONDS),
+                    "Запись в переполненную очередь не ожидает места.");
+            Assertions.assertEquals(List.of(0), storage.getEntityIds(),
+                    "Событие из переполненной очереди записано в обход очереди.");
+            storage.release();
+            future.get(5, TimeUnit.SECONDS);
+            queueStorage.flush();
+            Assertions.assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()),
+                    storage.getEntityIds(), "Нарушен порядок событий при переполненной очереди.");
+            Assertions.assertEquals(Set.of("feed-writer"), storage.getWriterThreads(),
+                    "Событие из переполненной очереди записано в потоке вызывающего.");
+        } finally {
+            executor.shutdownNow();
+            queueStorage.stop();
+        }
+    }
+
+    @Test
+    void failedWritesAreRetried() {
+        RecordingFeedStorage storage = new RecordingFeedStorage(3);
+        storage.release();
+        FeedQueueStorage queueStorage = new FeedQueueStorage(storage, true, 16, 8, 10, 5000);
+        queueStorage.start();
+        try {
+            for (int entityId = 0; entityId < 5; entityId++) {
+                queueStorage.saveFeed(1, entityId, EventType.SCORE.getEventTypeId(), Operation.ADD.getOperationId());
+            }
+            queueStorage.flush();
+            Assertions.assertEquals(List.of(0, 1, 2, 3, 4), storage.getEntityIds(),
+                    "События ленты потеряны после ошибки записи.");
+        } finally {
+            queueStorage.stop();
+        }
+    }
+
+    private String toString(Collection<Feed> feeds) {
+        return feeds.stream()
+                .map(feed -> feed.getEventType() + " " + feed.getOperation() + " " + feed.getEntityId())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static class RecordingFeedStorage extends FeedDbStorage {
+
+        private final List<Integer> entityIds = new ArrayList<>();
+        private final Set<String> writerThreads = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final AtomicInteger failures;
+
+        RecordingFeedStorage(int failures) {
+            super(null, null, 0);
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void saveFeeds(List<Feed> feeds) {
+            writerThreads.add(Thread.currentThread().getName());
+            if (!getEntityIds().isEmpty()) {
+                awaitRelease();
+            }
+            synchronized (entityIds) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new TransientDataAccessResourceException("База данных недоступна.");
+                }
+                feeds.forEach(feed -> entityIds.add(feed.getEntityId()));
+            }
+        }
+
+        List<Integer> getEntityIds() {
+            synchronized (entityIds) {
+                return new ArrayList<>(entityIds);
+            }
+        }
+
+        Set<String> getWriterThreads() {
+            return writerThreads;
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        private void awaitRelease() {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.controllers.FeedStreamBroker;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Score;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.feed-stream.buffer-size=2", "filmorate.feed-stream.threads=1",
+        "filmorate.feed-stream.send-timeout-ms=1000"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class FeedStreamTests {
+
+    private final FeedStreamBroker feedStreamBroker;
+    private final FilmService filmService;
+    private final UserService userService;
+
+    @Test
+    void streamPushesNewEventsOfUser() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feedStreamBroker.subscribe(1, Optional.empty(), emitter);
+        filmService.saveScore(new Score(1, 2, 6));
+        filmService.saveScore(new Score(3, 1, 8));
+        userService.saveFriend(1, 3);
+        Assertions.assertEquals("SCORE 3", toString(emitter.take()), "Ошибка при отправке события ленты.");
+        Assertions.assertEquals("FRIEND 3", toString(emitter.take()), "Ошибка при отправке события ленты.");
+        Assertions.assertNull(emitter.poll(), "Отправлено событие чужой ленты.");
+        emitter.complete();
+    }
+
+    @Test
+    void streamResumesFromLastEventId() throws InterruptedException {
+        filmService.saveScore(new Score(1, 1, 6));
+        filmService.saveScore(new Score(3, 1, 8));
+        userService.saveFriend(1, 2);
+        List<Feed> feeds = new ArrayList<>(userService.findFeed(1));
+        RecordingEmitter emitter = new RecordingEmitter();
+        feedStreamBroker.subscribe(1, Optional.of(feeds.get(0).getEventId()), emitter);
+        Assertions.assertEquals(feeds.get(1).getEventId(), emitter.take().getEventId(),
+                "Ошибка при возобновлении ленты с последнего события.");
+        Assertions.assertEquals(feeds.get(2).getEventId(), emitter.take().getEventId(),
+                "Ошибка при возобновлении ленты с последнего события.");
+        userService.saveFriend(1, 3);
+        Assertions.assertEquals("FRIEND 3", toString(emitter.take()),
+                "Ошибка при отправке события после возобновления ленты.");
+        Assertions.assertNull(emitter.poll(), "Повторно отправлено событие ленты.");
+        emitter.complete();
+    }
+
+    @Test
+    void slowSubscriberIsDisconnectedOnOverflow() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        int subscribersCount = feedStreamBroker.getSubscribersCount();
+        feedStreamBroker.subscribe(1, Optional.empty(), emitter);
+        for (int filmId = 1; filmId <= 4; filmId++) {
+            filmService.saveScore(new Score(filmId, 1, 5));
+        }
+        userService.saveFriend(1, 2);
+        release.countDown();
+        Assertions.assertTrue(emitter.completed.await(5, TimeUnit.SECONDS),
+                "Переполненная подписка на ленту не закрыта.");
+        Assertions.assertEquals(subscribersCount, feedStreamBroker.getSubscribersCount(),
+                "Переполненная подписка на ленту не удалена.");
+    }
+
+    @Test
+    void stalledSubscriberIsDroppedAndDoesNotDelayOthers() throws InterruptedException {
+        RecordingEmitter stalled = new RecordingEmitter(new CountDownLatch(1));
+        int subscribersCount = feedStreamBroker.getSubscribersCount();
+        feedStreamBroker.subscribe(1, Optional.empty(), stalled);
+        userService.saveFriend(1, 2);
+        RecordingEmitter emitter = new RecordingEmitter();
+        feedStreamBroker.subscribe(3, Optional.empty(), emitter);
+        userService.saveFriend(3, 1);
+        Assertions.assertEquals("FRIEND 1", toString(emitter.take()),
+                "Зависший подписчик задерживает отправку ленты остальным.");
+        Assertions.assertTrue(stalled.failed.await(5, TimeUnit.SECONDS), "Зависшая подписка на ленту не закрыта.");
+        Assertions.assertNull(stalled.poll(), "Зависшему подписчику отправлено событие ленты.");
+        Assertions.assertEquals(subscribersCount + 1, feedStreamBroker.getSubscribersCount(),
+                "Зависшая подписка на ленту не удалена.");
+        emitter.complete();
+    }
+
+    private String toString(Feed feed) {
+        return feed.getEventType() + " " + feed.getEntityId();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Feed> feeds = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private Runnable completionCallback = () -> {
+        };
+
+        private RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            builder.build().stream()
+                    .filter(data -> data.getData() instanceof Feed)
+                    .forEach(data -> feeds.add((Feed) data.getData()));
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public synchronized void complete() {
+            completionCallback.run();
+            completed.countDown();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            failed.countDown();
+        }
+
+        private Feed take() throws InterruptedException {
+            Feed feed = feeds.poll(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(feed, "Событие ленты не получено.");
+            return feed;
+        }
+
+        private Feed poll() throws InterruptedException {
+            return feeds.poll(200, TimeUnit.MILLISECONDS);
+        }
+    }
+}
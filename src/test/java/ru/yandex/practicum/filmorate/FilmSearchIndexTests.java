@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.service.DirectorsService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = "filmorate.search-index.enabled=true")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class FilmSearchIndexTests {
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        FilmSearchIndex index = new FilmSearchIndex(true);
+        index.saveFilm(1, "old film", List.of());
+        index.rebuild(rebuilt -> {
+            rebuilt.saveDirector(1, "Director");
+            rebuilt.saveFilm(1, "old film", List.of(1));
+            rebuilt.saveFilm(2, "other film", List.of());
+            index.removeFilm(1);
+            index.saveFilm(3, "new film", List.of(1));
+            Assertions.assertEquals(List.of(3), index.search("film", true, false),
+                    "Индекс изменился до окончания перестроения.");
+        });
+        Assertions.assertEquals(List.of(2, 3), index.search("film", true, false),
+                "Изменения во время перестроения индекса потеряны.");
+        Assertions.assertEquals(List.of(3), index.search("direct", false, true),
+                "Изменения во время перестроения индекса потеряны.");
+    }
+
+    private static final List<String> QUERIES = List.of("", "f", "fI", "film", "FiNaL", "m 1", "film 12",
+            "director", "oThEr", "r 3", "man", "Фильм", "режиссер", "nothing");
+
+    private final FilmService filmService;
+    private final DirectorsService directorsService;
+    private final FilmStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void rebuildIndex() {
+        filmService.rebuildFilmSearchIndex();
+    }
+
+    @Test
+    void searchNormal() {
+        Assertions.assertEquals(List.of(2, 1), toIds(filmService.searchByFilmAndDirector("dIr", "director")),
+                "Ошибка при поиске фильмов по режиссеру.");
+        Assertions.assertEquals(List.of(4), toIds(filmService.searchByFilmAndDirector("FiNaL", "title")),
+                "Ошибка при поиске фильмов по названию.");
+        Assertions.assertEquals(List.of(2, 4, 1, 3), toIds(filmService.searchByFilmAndDirector(null, "title,director")),
+                "Ошибка при поиске фильмов без запроса.");
+        Assertions.assertThrows(ValidationException.class, () -> filmService.searchByFilmAndDirector("film", "genre"),
+                "Ошибка при поиске фильмов с неверным параметром.");
+    }
+
+    @Test
+    void searchMatchesSqlSearch() {
+        generate();
+        assertMatchesSqlSearch();
+    }
+
+    @Test
+    void searchAfterUpdatesMatchesSqlSearch() {
+        generate();
+        Director director = directorsService.saveNew(new Director(null, "Новый Режиссер"));
+        filmService.saveNew(new Film("Новый Фильм", "description", LocalDate.of(2001, 1, 1), 90L, null,
+                List.of(), new Mpa(1, null), List.of(director), null));
+        filmService.update(new Film("Final Cut", "description", LocalDate.of(1987, 4, 22), 100L, 4,
+                List.of(), new Mpa(2, null), List.of(new Director(3, null)), null));
+        filmService.update(new Film("new film", "new description", LocalDate.of(2000, 4, 22), 100L, 1,
+                List.of(), new Mpa(1, null), List.of(), null));
+        directorsService.update(new Director(2, "Renamed Man"));
+        directorsService.removeById(3);
+        filmService.removeFilm(12);
+        assertMatchesSqlSearch();
+    }
+
+    @Test
+    void searchByPagesMatchesSearch() {
+        generate();
+        for (String query : List.of("", "film 1", "director")) {
+            List<Integer> pages = new ArrayList<>();
+            Optional<String> cursor = Optional.empty();
+            do {
+                Page<Film> page = filmService.searchByFilmAndDirector(query, "title,director", Optional.of(7), cursor);
+                pages.addAll(toIds(page.getItems()));
+                cursor = Optional.ofNullable(page.getNext());
+            } while (cursor.isPresent());
+            Assertions.assertEquals(toIds(filmService.searchByFilmAndDirector(query, "title,director")), pages,
+                    "Ошибка при постраничном поиске фильмов.");
+        }
+    }
+
+    @Test
+    void searchAboveArrayLimitMatchesSqlSearch() {
+        jdbcTemplate.update("INSERT INTO FILMS SELECT X, CONCAT('film ', X), 'description', '1990-04-13', 100, 1 " +
+                "FROM SYSTEM_RANGE(5, 60004)");
+        jdbcTemplate.update("INSERT INTO FILM_RATING_STATS (FILM_ID, SCORE_SUM, SCORE_COUNT) " +
+                "SELECT X, MOD(X, 10) + 1, 1 FROM SYSTEM_RANGE(5, 60004) WHERE MOD(X, 3) > 0");
+        filmService.rebuildFilmSearchIndex();
+        List<Integer> expected = toIds(filmStorage.searchByTitle("fi"));
+        Assertions.assertEquals(expected, toIds(filmService.searchByFilmAndDirector("fi", "title")),
+                "Поиск большого числа фильмов расходится с запросом к базе.");
+        Page<Film> page = filmService.searchByFilmAndDirector("fi", "title", Optional.of(100), Optional.empty());
+        Page<Film> nextPage = filmService.searchByFilmAndDirector("fi", "title", Optional.of(100),
+                Optional.ofNullable(page.getNext()));
+        Assertions.assertEquals(expected.subList(0, 200), Stream.concat(page.getItems().stream(),
+                        nextPage.getItems().stream()).map(Film::getId).collect(Collectors.toList()),
+                "Постраничный поиск большого числа фильмов расходится с запросом к базе.");
+    }
+
+    private void assertMatchesSqlSearch() {
+        for (String query : QUERIES) {
+            Assertions.assertEquals(toIds(filmStorage.searchByTitle(query)),
+                    toIds(filmService.searchByFilmAndDirector(query, "title")),
+                    "Поиск по названию расходится с запросом к базе: " + query);
+            Assertions.assertEquals(toIds(filmStorage.searchByDirector(query)),
+                    toIds(filmService.searchByFilmAndDirector(query, "director")),
+                    "Поиск по режиссеру расходится с запросом к базе: " + query);
+            Assertions.assertEquals(toIds(filmStorage.searchByFilmAndDirector(query)),
+                    toIds(filmService.searchByFilmAndDirector(query, "director,title")),
+                    "Поиск по названию и режиссеру расходится с запросом к базе: " + query);
+        }
+    }
+
+    private void generate() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setUsers(50);
+        settings.setFilms(200);
+        settings.setDirectors(20);
+        settings.setReviews(0);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        filmService.rebuildFilmSearchIndex();
+    }
+
+    private List<Integer> toIds(Collection<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -8,22 +8,41 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.controllers.NdjsonReader;
+import ru.yandex.practicum.filmorate.controllers.NdjsonWriter;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @SpringBootTest
@@ -36,7 +55,13 @@ class FilmServiceUnitTests {
 
     private final Validator validator;
     private final FilmService filmService;
+    private final UserService userService;
     private final FeedStorage feedStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final NdjsonWriter ndjsonWriter;
+    private final NdjsonReader ndjsonReader;
+    private final FilmStorage filmStorage;
+    private final TransactionTemplate transactionTemplate;
 
     static Stream<Film> filmWithWrongParameters() {
         return Stream.of(
@@ -515,4 +540,318 @@ class FilmServiceUnitTests {
                 filmService.searchByFilmAndDirector(null, "title,director").toString(),
                 "Ошибка при поиске по названию-режиссеруп по пустой строке.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void changeScoreUpdatesRating() {
+        filmService.saveScore(new Score(2, 1, 2));
+        Assertions.assertEquals(3.5, filmService.findById(2).getRating(),
+                "Ошибка при изменении оценки фильма.");
+        Assertions.assertTrue(filmService.rebuildRatingStats().isEmpty(),
+                "Рейтинг фильма разошелся с оценками после изменения оценки.");
+    }
+
+    @Test
+    void removeUserUpdatesRating() {
+        userService.removeUser(1);
+        Assertions.assertEquals(5.0, filmService.findById(2).getRating(),
+                "Ошибка при удалении оценок пользователя.");
+        Assertions.assertEquals(4.0, filmService.findById(4).getRating(),
+                "Ошибка при удалении оценок пользователя.");
+        Assertions.assertTrue(filmService.rebuildRatingStats().isEmpty(),
+                "Рейтинг фильма разошелся с оценками после удаления пользователя.");
+    }
+
+    @Test
+    void rebuildRatingStatsFindsDrift() {
+        Assertions.assertTrue(filmService.rebuildRatingStats().isEmpty(),
+                "Ошибка при проверке согласованных рейтингов.");
+        jdbcTemplate.update("INSERT INTO FILM_SCORE VALUES (1, 3, 8)");
+        jdbcTemplate.update("DELETE FROM FILM_SCORE WHERE FILM_ID = 4");
+        Assertions.assertEquals(List.of(1, 4), filmService.rebuildRatingStats(),
+                "Ошибка при поиске расхождений в рейтингах.");
+        Assertions.assertEquals(8.0, filmService.findById(1).getRating(),
+                "Ошибка при пересчете рейтинга фильма.");
+        Assertions.assertEquals(0.0, filmService.findById(4).getRating(),
+                "Ошибка при пересчете рейтинга фильма.");
+    }
+
+    @Test
+    void findAllQueryCountDoesNotDependOnFilmsCount() {
+        int queriesForFewFilms = countQueries(filmService::findAll);
+        for (int filmId = 5; filmId < 25; filmId++) {
+            jdbcTemplate.update("INSERT INTO FILMS VALUES (?, ?, 'description', '1990-04-13', 100, 1)", filmId, "film " + filmId);
+            jdbcTemplate.update("INSERT INTO FILM_GENRES VALUES (?, 1)", filmId);
+            jdbcTemplate.update("INSERT INTO FILM_DIRECTOR VALUES (?, 1)", filmId);
+            jdbcTemplate.update("INSERT INTO FILM_SCORE VALUES (?, 1, 5)", filmId);
+        }
+        Assertions.assertEquals(queriesForFewFilms, countQueries(filmService::findAll),
+                "Количество запросов к БД при получении фильмов зависит от количества фильмов.");
+    }
+
+    @Test
+    void streamAllMatchesFindAll() {
+        jdbcTemplate.update("INSERT INTO FILMS SELECT X, CONCAT('film ', X), 'description', '1990-04-13', 100, 1 " +
+                "FROM SYSTEM_RANGE(5, 1204)");
+        jdbcTemplate.update("INSERT INTO FILM_GENRES SELECT X, 2 FROM SYSTEM_RANGE(5, 1204)");
+        List<Film> films = new ArrayList<>();
+        filmService.streamAll(films::add);
+        Assertions.assertEquals(1204, films.size(), "Ошибка при потоковом получении фильмов.");
+        Assertions.assertEquals(filmService.findAll().toString(), films.toString(),
+                "Потоковое получение фильмов расходится с обычным.");
+    }
+
+    @Test
+    void findAllAboveArrayLimit() {
+        jdbcTemplate.update("INSERT INTO FILMS SELECT X, CONCAT('film ', X), 'description', '1990-04-13', 100, 1 " +
+                "FROM SYSTEM_RANGE(5, 70004)");
+        jdbcTemplate.update("INSERT INTO FILM_GENRES SELECT X, 2 FROM SYSTEM_RANGE(5, 70004)");
+        List<Film> films = new ArrayList<>(filmService.findAll());
+        Assertions.assertEquals(70004, films.size(), "Ошибка при получении большого числа фильмов.");
+        Assertions.assertTrue(films.stream().skip(4).allMatch(film -> film.getGenres().size() == 1
+                        && film.getMpa() != null), "Ошибка при заполнении жанров и рейтинга большого числа фильмов.");
+    }
+
+    @Test
+    void streamAllWritesNdjson() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Objects.requireNonNull(ndjsonWriter.<Film>write(filmService::streamAll).getBody()).writeTo(outputStream);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(4, lines.length, "Ошибка при потоковой выдаче фильмов.");
+        Assertions.assertTrue(lines[1].startsWith("{\"name\":\"second film\"") && lines[1].contains("\"rating\":7.5"),
+                "Ошибка при потоковой выдаче фильмов.");
+    }
+
+    @Test
+    void findAllByPages() {
+        insertDirectorFilms();
+        List<Film> films = collectPages(cursor -> filmService.findAll(Optional.of(7), cursor));
+        Assertions.assertEquals(filmService.findAll().toString(), films.toString(),
+                "Ошибка при постраничном получении фильмов.");
+    }
+
+    @Test
+    void findByDirectorIdByPages() {
+        insertDirectorFilms();
+        for (SortType sortBy : SortType.values()) {
+            List<Film> films = collectPages(cursor -> filmService.findByDirectorId(1, sortBy, Optional.of(4), cursor));
+            Assertions.assertEquals(filmService.findByDirectorId(1, sortBy).toString(), films.toString(),
+                    "Ошибка при постраничном получении фильмов режиссера.");
+        }
+    }
+
+    @Test
+    void searchByPages() {
+        insertDirectorFilms();
+        for (String by : List.of("title", "director", "title,director")) {
+            List<Film> films = collectPages(cursor ->
+                    filmService.searchByFilmAndDirector("film", by, Optional.of(3), cursor));
+            Assertions.assertEquals(filmService.searchByFilmAndDirector("film", by).toString(), films.toString(),
+                    "Ошибка при постраничном поиске фильмов.");
+        }
+    }
+
+    @Test
+    void findAllByPagesWithWrongParameters() {
+        Assertions.assertThrows(ValidationException.class, () -> filmService.findAll(Optional.of(0), Optional.empty()),
+                "Ошибка при получении страницы с неверным размером.");
+        Assertions.assertThrows(ValidationException.class, () -> filmService.findAll(Optional.of(2), Optional.of("!!")),
+                "Ошибка при получении страницы с неверным курсором.");
+        Assertions.assertThrows(ValidationException.class, () -> filmService.findByDirectorId(1, SortType.ratings,
+                        Optional.of(2), Optional.of(filmService.findAll(Optional.of(1), Optional.empty()).getNext())),
+                "Ошибка при получении страницы с чужим курсором.");
+    }
+
+    @Test
+    void findByPagesWithCursorOfOtherEndpoint() {
+        insertDirectorFilms();
+        String searchCursor = filmService.searchByFilmAndDirector("film", "title", Optional.of(1), Optional.empty())
+                .getNext();
+        Assertions.assertThrows(ValidationException.class, () -> filmService.findByDirectorId(1, SortType.ratings,
+                        Optional.of(2), Optional.of(searchCursor)),
+                "Ошибка при получении фильмов режиссера с курсором поиска.");
+        String yearCursor = filmService.findByDirectorId(1, SortType.year, Optional.of(1), Optional.empty()).getNext();
+        Assertions.assertThrows(ValidationException.class, () -> filmService.findByDirectorId(1, SortType.ratings,
+                        Optional.of(2), Optional.of(yearCursor)),
+                "Ошибка при сортировке по рейтингу с курсором сортировки по году.");
+    }
+
+    @Test
+    void saveAllNormal() {
+        restartFilmIds();
+        List<Film> films = new ArrayList<>();
+        films.add(new Film("imported film", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                List.of(new Genre(2, null), new Genre(2, null)), new Mpa(3, null), List.of(new Director(2, null)), null));
+        films.add(new Film("", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                List.of(), new Mpa(1, null), List.of(), null));
+        films.add(new Film("wrong mpa", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                List.of(), new Mpa(99, null), List.of(), null));
+        films.add(new Film("wrong genre", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                List.of(new Genre(99, null)), new Mpa(1, null), List.of(), null));
+        films.add(new Film("wrong director", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                List.of(), new Mpa(1, null), List.of(new Director(99, null)), null));
+        films.add(null);
+        films.add(new Film("second imported film", "description", LocalDate.of(2002, Month.MAY, 1), 95L, null,
+                null, new Mpa(1, null), null, null));
+        List<ImportResult> results = filmService.saveAll(films.iterator());
+        Assertions.assertEquals(Arrays.asList(5, null, null, null, null, null, 6),
+                results.stream().map(ImportResult::getId).collect(Collectors.toList()),
+                "Ошибка при пакетном добавлении фильмов.");
+        Assertions.assertEquals(5, results.stream().filter(result -> result.getError() != null).count(),
+                "Ошибка при пакетном добавлении фильмов с неверными данными.");
+        Assertions.assertEquals("Film(name=imported film, description=description, releaseDate=2001-05-01, duration=90, id=5, genres=[Genre(id=2, name=Драма)], mpa=Mpa(id=3, name=PG-13), directors=[Director(id=2, name=Other Director)], rating=0.0)",
+                filmService.findById(5).toString(), "Ошибка при пакетном добавлении фильмов.");
+    }
+
+    @Test
+    void saveAllWithDuplicates() {
+        restartFilmIds();
+        Film film = new Film("imported film", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                List.of(), new Mpa(1, null), List.of(), null);
+        List<Film> films = List.of(film,
+                new Film("NEW FILM", "new description", LocalDate.of(2000, Month.APRIL, 22), 90L, null,
+                        List.of(), new Mpa(1, null), List.of(), null),
+                new Film("second imported film", "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                        List.of(), new Mpa(1, null), List.of(), null),
+                film);
+        List<ImportResult> results = filmService.saveAll(films.iterator());
+        Assertions.assertEquals(List.of(true, false, true, false),
+                results.stream().map(result -> result.getId() != null).collect(Collectors.toList()),
+                "Ошибка при пакетном добавлении повторяющихся фильмов.");
+        Assertions.assertEquals("second imported film", filmService.findById(results.get(2).getId()).getName(),
+                "Ошибка при пакетном добавлении повторяющихся фильмов.");
+        Assertions.assertEquals(6, filmService.findAll().size(), "Ошибка при пакетном добавлении повторяющихся фильмов.");
+    }
+
+    @Test
+    void saveAllByBatches() {
+        restartFilmIds();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            films.add(new Film("imported film " + i, "description", LocalDate.of(2001, Month.MAY, 1), 90L, null,
+                    List.of(new Genre(1 + i % 6, null)), new Mpa(1 + i % 5, null), List.of(new Director(1 + i % 3, null)), null));
+        }
+        Integer genresBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILM_GENRES", Integer.class);
+        List<ImportResult> results = filmService.saveAll(films.iterator());
+        Assertions.assertEquals(IntStream.rangeClosed(5, 2504).boxed().collect(Collectors.toList()),
+                results.stream().map(ImportResult::getId).collect(Collectors.toList()),
+                "Ошибка при пакетном добавлении фильмов.");
+        Assertions.assertEquals(2504, filmService.findAll().size(), "Ошибка при пакетном добавлении фильмов.");
+        Assertions.assertEquals(genresBefore + 2500, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILM_GENRES", Integer.class),
+                "Ошибка при пакетном добавлении жанров фильмов.");
+        Assertions.assertEquals("[Director(id=1, name=Director)]", filmService.findById(2504).getDirectors().toString(),
+                "Ошибка при пакетном добавлении режиссеров фильмов.");
+    }
+
+    @Test
+    void saveAllFromNdjson() {
+        restartFilmIds();
+        String body = "{\"name\":\"ndjson film\",\"description\":\"description\",\"releaseDate\":\"2001-05-01\"," +
+                "\"duration\":90,\"mpa\":{\"id\":1}}\n{\"name\":\n\n" +
+                "{\"name\":\"second ndjson film\",\"description\":\"description\",\"releaseDate\":\"2002-05-01\"," +
+                "\"duration\":95,\"mpa\":{\"id\":2},\"genres\":[{\"id\":1}]}\n";
+        List<ImportResult> results = filmService.saveAll(ndjsonReader.read(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), Film.class));
+        Assertions.assertEquals("[ImportResult(index=0, id=5, error=null), " +
+                        "ImportResult(index=1, id=null, error=Некорректные данные фильма.), " +
+                        "ImportResult(index=2, id=6, error=null)]", results.toString(),
+                "Ошибка при пакетном добавлении фильмов из NDJSON.");
+        Assertions.assertEquals("second ndjson film", filmService.findById(6).getName(),
+                "Ошибка при пакетном добавлении фильмов из NDJSON.");
+    }
+
+    @Test
+    void saveScoresNormal() {
+        List<Score> scores = Arrays.asList(new Score(1, 3, 6), new Score(2, 2, 7), new Score(99, 1, 5),
+                new Score(1, 99, 5), new Score(1, 1, 11), null, new Score(3, 1, 2), new Score(3, 1, 8));
+        List<ImportResult> results = filmService.saveScores(scores.iterator());
+        Assertions.assertEquals(Arrays.asList(1, 2, null, null, null, null, 3, 3),
+                results.stream().map(ImportResult::getId).collect(Collectors.toList()),
+                "Ошибка при пакетном добавлении оценок.");
+        Assertions.assertEquals("Фильм c ID 99 не найден.", results.get(2).getError(),
+                "Ошибка при пакетном добавлении оценки несуществующему фильму.");
+        Assertions.assertEquals("Пользователь c ID 99 не найден.", results.get(3).getError(),
+                "Ошибка при пакетном добавлении оценки несуществующего пользователя.");
+        Assertions.assertEquals("Оценка должна быть от 1 до 10.", results.get(4).getError(),
+                "Ошибка при пакетном добавлении неверной оценки.");
+        Assertions.assertEquals(6.0, filmService.findById(1).getRating(), "Ошибка при пакетном добавлении оценок.");
+        Assertions.assertEquals(8.5, filmService.findById(2).getRating(), "Ошибка при пакетном обновлении оценок.");
+        Assertions.assertEquals(8.0, filmService.findById(3).getRating(),
+                "Ошибка при пакетном добавлении повторяющихся оценок.");
+        Assertions.assertTrue(filmService.rebuildRatingStats().isEmpty(),
+                "Ошибка при пакетном обновлении статистики рейтингов.");
+        Assertions.assertEquals(1, feedStorage.findFeed(1).size(), "Ошибка при пакетном добавлении событий.");
+        Assertions.assertEquals("SCORE ADD 1", feedStorage.findFeed(3).stream()
+                        .map(feed -> feed.getEventType() + " " + feed.getOperation() + " " + feed.getEntityId())
+                        .collect(Collectors.joining()),
+                "Ошибка при пакетном добавлении событий.");
+    }
+
+    @Test
+    void saveScoresLocksOnlyScoredPairs() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                filmStorage.saveScores(List.of(new Score(2, 2, 6), new Score(4, 1, 3)));
+                Future<Integer> update = executor.submit(() ->
+                        jdbcTemplate.update("UPDATE FILM_SCORE SET SCORE = 9 WHERE FILM_ID = 2 AND USER_ID = 1"));
+                Assertions.assertDoesNotThrow(() -> update.get(5, TimeUnit.SECONDS),
+                        "Пакетное добавление оценок заблокировало чужие оценки.");
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(List.of(6, 9), jdbcTemplate.queryForList(
+                        "SELECT SCORE FROM FILM_SCORE WHERE FILM_ID = 2 ORDER BY USER_ID DESC", Integer.class),
+                "Ошибка при пакетном добавлении оценок.");
+    }
+
+    @Test
+    void saveScoresFromNdjson() {
+        String body = "{\"filmId\":1,\"userId\":1,\"score\":4}\n{\"filmId\":\n\n{\"filmId\":1,\"userId\":2,\"score\":0}\n";
+        List<ImportResult> results = filmService.saveScores(ndjsonReader.read(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), Score.class));
+        Assertions.assertEquals("[ImportResult(index=0, id=1, error=null), " +
+                        "ImportResult(index=1, id=null, error=Некорректные данные оценки.)]",
+                results.subList(0, 2).toString(), "Ошибка при пакетном добавлении оценок из NDJSON.");
+        Assertions.assertTrue(results.get(2).getError().startsWith("score "),
+                "Ошибка при пакетном добавлении неверной оценки из NDJSON.");
+        Assertions.assertEquals(4.0, filmService.findById(1).getRating(),
+                "Ошибка при пакетном добавлении оценок из NDJSON.");
+    }
+
+    private void restartFilmIds() {
+        jdbcTemplate.execute("ALTER TABLE FILMS ALTER COLUMN FILM_ID RESTART WITH 5");
+    }
+
+    private void insertDirectorFilms() {
+        jdbcTemplate.update("INSERT INTO FILMS SELECT X, CONCAT('film ', X), 'description', " +
+                "DATEADD(YEAR, MOD(X, 3), DATE '1990-04-13'), 100, 1 FROM SYSTEM_RANGE(5, 30)");
+        jdbcTemplate.update("INSERT INTO FILM_DIRECTOR SELECT X, 1 FROM SYSTEM_RANGE(5, 30)");
+        jdbcTemplate.update("INSERT INTO FILM_SCORE SELECT X, 1, 1 + MOD(X, 4) FROM SYSTEM_RANGE(5, 30) WHERE MOD(X, 5) > 0");
+        filmService.rebuildRatingStats();
+    }
+
+    private <T> List<T> collectPages(Function<Optional<String>, Page<T>> pages) {
+        List<T> items = new ArrayList<>();
+        Optional<String> cursor = Optional.empty();
+        do {
+            Page<T> page = pages.apply(cursor);
+            items.addAll(page.getItems());
+            cursor = Optional.ofNullable(page.getNext());
+        } while (cursor.isPresent());
+        return items;
+    }
+
+    private int countQueries(Runnable action) {
+        jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+        try {
+            action.run();
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT SUM(EXECUTION_COUNT) FROM INFORMATION_SCHEMA.QUERY_STATISTICS", Integer.class);
+            return count == null ? 0 : count;
+        } finally {
+            jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.service.DirectorsService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSuggestIndex;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = "filmorate.suggest-index.enabled=true")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class FilmSuggestIndexTests {
+
+    @Test
+    void suggestWithManyMatchesReturnsMostPopular() {
+        FilmSuggestIndex index = new FilmSuggestIndex(true);
+        for (int i = 1; i <= 5000; i++) {
+            index.saveFilm(i, String.format("film %04d", i), i, List.of());
+            index.saveFilm(5000 + i, String.format("other %04d", i), 10000 + i, List.of());
+        }
+        Assertions.assertEquals(List.of(5000, 4999, 4998, 4997, 4996, 4995, 4994, 4993, 4992, 4991),
+                toIds(index.suggestFilms("f", 10)), "Ошибка при получении подсказок для частого префикса.");
+        Assertions.assertEquals(List.of(4999, 4998, 4997), toIds(index.suggestFilms("film 49", 3)),
+                "Ошибка при получении подсказок для частого префикса.");
+        Assertions.assertEquals(List.of(10000, 9999), toIds(index.suggestFilms("o", 2)),
+                "Ошибка при получении подсказок для частого префикса.");
+    }
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        FilmSuggestIndex index = new FilmSuggestIndex(true);
+        index.saveFilm(1, "old film", 5.0, List.of());
+        index.rebuild(rebuilt -> {
+            rebuilt.saveFilm(1, "old film", 5.0, List.of());
+            rebuilt.saveFilm(2, "other film", 4.0, List.of());
+            index.removeFilm(1);
+            index.saveFilm(3, "new film", 1.0, List.of());
+            index.updateRatings(Map.of(3, 9.0));
+            Assertions.assertEquals(List.of(3), toIds(index.suggestFilms("", 10)),
+                    "Индекс изменился до окончания перестроения.");
+        });
+        Assertions.assertEquals(List.of(3, 2), toIds(index.suggestFilms("", 10)),
+                "Изменения во время перестроения индекса потеряны.");
+    }
+
+    private static final List<String> PREFIXES = List.of("f", "FiLm", "film 1", "film 12", "m 1", "d", "director 1",
+            "oth", "1", "12", "Новый", "ф", "nothing");
+
+    private final FilmService filmService;
+    private final DirectorsService directorsService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void rebuildIndex() {
+        filmService.rebuildFilmSuggestIndex();
+    }
+
+    @Test
+    void suggestNormal() {
+        Suggestions suggestions = filmService.suggest("f", Optional.empty());
+        Assertions.assertEquals(List.of(2, 4, 1, 3), toIds(suggestions.getFilms()),
+                "Ошибка при получении подсказок по фильмам.");
+        Assertions.assertTrue(suggestions.getDirectors().isEmpty(), "Ошибка при получении подсказок по режиссерам.");
+        Assertions.assertEquals("[Suggestion(id=2, name=second film)]",
+                filmService.suggest("sec", Optional.of(1)).getFilms().toString(),
+                "Ошибка при получении подсказок по фильмам.");
+        Assertions.assertEquals(List.of(1, 2), toIds(filmService.suggest("dIr", Optional.empty()).getDirectors()),
+                "Ошибка при получении подсказок по режиссерам.");
+    }
+
+    @Test
+    void suggestAfterOnlyScorerRemoved() {
+        filmService.saveScore(new Score(3, 3, 10));
+        Assertions.assertEquals(List.of(3, 2, 4, 1), toIds(filmService.suggest("f", Optional.empty()).getFilms()),
+                "Ошибка при обновлении подсказок после изменения оценок.");
+        userService.removeUser(3);
+        Assertions.assertEquals(List.of(2, 4, 1, 3), toIds(filmService.suggest("f", Optional.empty()).getFilms()),
+                "Ошибка при обновлении подсказок после удаления пользователя.");
+    }
+
+    @Test
+    void suggestWithWrongParameters() {
+        Assertions.assertThrows(ValidationException.class, () -> filmService.suggest(" ", Optional.empty()),
+                "Ошибка при получении подсказок с пустым префиксом.");
+        Assertions.assertThrows(ValidationException.class, () -> filmService.suggest("f", Optional.of(0)),
+                "Ошибка при получении подсказок с неверным количеством.");
+    }
+
+    @Test
+    void suggestMatchesSqlSuggest() {
+        generate();
+        assertMatchesSqlSuggest();
+    }
+
+    @Test
+    void suggestAfterUpdatesMatchesSqlSuggest() {
+        generate();
+        Director director = directorsService.saveNew(new Director(null, "Новый Режиссер"));
+        filmService.saveNew(new Film("Новый Фильм", "description", LocalDate.of(2001, 1, 1), 90L, null,
+                List.of(), new Mpa(1, null), List.of(director), null));
+        filmService.update(new Film("Final Cut", "description", LocalDate.of(1987, 4, 22), 100L, 4,
+                List.of(), new Mpa(2, null), List.of(new Director(3, null)), null));
+        filmService.saveScore(new Score(120, 1, 10));
+        filmService.saveScore(new Score(17, 2, 10));
+        filmService.removeScore(2, 2);
+        directorsService.update(new Director(6, "Other Studio"));
+        directorsService.removeById(3);
+        filmService.removeFilm(12);
+        assertMatchesSqlSuggest();
+    }
+
+    private void assertMatchesSqlSuggest() {
+        for (String prefix : PREFIXES) {
+            Suggestions suggestions = filmService.suggest(prefix, Optional.of(15));
+            Assertions.assertEquals(filmStorage.suggestByName(prefix, 15), suggestions.getFilms(),
+                    "Подсказки по фильмам расходятся с запросом к базе: " + prefix);
+            Assertions.assertEquals(directorsService.suggestByName(prefix, 15), suggestions.getDirectors(),
+                    "Подсказки по режиссерам расходятся с запросом к базе: " + prefix);
+        }
+    }
+
+    private void generate() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setUsers(100);
+        settings.setFilms(1500);
+        settings.setDirectors(30);
+        settings.setReviews(0);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        filmService.rebuildFilmSuggestIndex();
+    }
+
+    private List<Integer> toIds(Collection<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getId).collect(Collectors.toList());
+    }
+}
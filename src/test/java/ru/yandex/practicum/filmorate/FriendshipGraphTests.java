@@ -0,0 +1,211 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.FriendAlreadyExistException;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendshipGraph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.friendship-graph.enabled=true"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class FriendshipGraphTests {
+
+    private final UserService userService;
+    private final UserStorage userStorage;
+    private final FriendshipGraph friendshipGraph;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void rebuildGraph() {
+        userService.rebuildFriendshipGraph();
+    }
+
+    @Test
+    void saveFriendKeepsStatus() {
+        userService.saveFriend(1, 2);
+        Assertions.assertTrue(friendshipGraph.isFriend(1, 2), "Ошибка при добавлении друга в граф.");
+        Assertions.assertFalse(friendshipGraph.isFriend(2, 1), "Ошибка при добавлении друга в граф.");
+        Assertions.assertFalse(friendshipGraph.isApproved(1, 2), "Ошибка статуса неподтвержденной дружбы.");
+        userService.saveFriend(2, 1);
+        Assertions.assertTrue(friendshipGraph.isApproved(1, 2), "Ошибка статуса подтвержденной дружбы.");
+        Assertions.assertTrue(friendshipGraph.isApproved(2, 1), "Ошибка статуса подтвержденной дружбы.");
+        Assertions.assertThrows(FriendAlreadyExistException.class, () -> userService.saveFriend(1, 2),
+                "Ошибка при повторном добавлении друга.");
+        userService.rebuildFriendshipGraph();
+        Assertions.assertTrue(friendshipGraph.isApproved(1, 2), "Ошибка статуса дружбы после загрузки графа.");
+        userService.removeFriend(2, 1);
+        Assertions.assertFalse(friendshipGraph.isFriend(1, 2), "Ошибка при удалении друга из графа.");
+        Assertions.assertThrows(FriendAlreadyExistException.class, () -> userService.removeFriend(1, 2),
+                "Ошибка при удалении отсутствующего друга.");
+    }
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        FriendshipGraph graph = new FriendshipGraph(true, 500, 50000);
+        graph.saveFriend(1, 2);
+        graph.rebuild(rebuilt -> {
+            rebuilt.saveFriend(1, 2);
+            rebuilt.saveFriend(2, 3);
+            graph.removeFriend(1, 2);
+            graph.saveFriend(3, 2);
+            Assertions.assertFalse(graph.isFriend(2, 3), "Граф изменился до окончания перестроения.");
+        });
+        Assertions.assertFalse(graph.isFriend(1, 2), "Изменения во время перестроения графа потеряны.");
+        Assertions.assertTrue(graph.isApproved(2, 3), "Изменения во время перестроения графа потеряны.");
+        Assertions.assertTrue(graph.isApproved(3, 2), "Изменения во время перестроения графа потеряны.");
+    }
+
+    @Test
+    void findFriendsMatchesStorage() {
+        generate();
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            int userId = 1 + random.nextInt(100);
+            int friendId = 1 + random.nextInt(100);
+            if (userId == friendId) {
+                continue;
+            }
+            if (friendshipGraph.isFriend(userId, friendId)) {
+                userService.removeFriend(userId, friendId);
+            } else {
+                userService.saveFriend(userId, friendId);
+            }
+        }
+        userService.removeUser(7);
+        for (int userId = 1; userId <= 100; userId++) {
+            if (userId == 7) {
+                continue;
+            }
+            Assertions.assertEquals(toIds(userStorage.findFriends(userId)), toIds(userService.findFriends(userId)),
+                    "Друзья из графа расходятся с базой для пользователя " + userId);
+            int otherUserId = userId % 100 + 1;
+            if (otherUserId != 7) {
+                Assertions.assertEquals(toIds(userStorage.findCommonFriends(userId, otherUserId)),
+                        toIds(userService.findCommonFriends(userId, otherUserId)),
+                        "Общие друзья из графа расходятся с базой для пользователя " + userId);
+            }
+        }
+    }
+
+    @Test
+    void findFriendSuggestionsNormal() {
+        userService.saveFriend(1, 2);
+        userService.saveFriend(2, 3);
+        Assertions.assertEquals(List.of(3), toIds(userService.findFriendSuggestions(1, Optional.empty())),
+                "Ошибка при получении предложений друзей.");
+        Assertions.assertTrue(userService.findFriendSuggestions(3, Optional.empty()).isEmpty(),
+                "Ошибка при получении пустых предложений друзей.");
+        userService.saveFriend(1, 3);
+        Assertions.assertTrue(userService.findFriendSuggestions(1, Optional.empty()).isEmpty(),
+                "В предложения друзей попал друг пользователя.");
+        Assertions.assertThrows(ValidationException.class, () -> userService.findFriendSuggestions(1, Optional.of(0)),
+                "Ошибка при получении предложений друзей с некорректным количеством.");
+    }
+
+    @Test
+    void findFriendSuggestionsRanksByMutualFriends() {
+        generate();
+        for (int userId = 1; userId <= 100; userId++) {
+            Assertions.assertEquals(findSuggestions(userId, 5),
+                    toIds(userService.findFriendSuggestions(userId, Optional.of(5)), false),
+                    "Ошибка ранжирования предложений друзей пользователя " + userId);
+            int[] friendIds = friendshipGraph.findFriendIds(userId);
+            Assertions.assertArrayEquals(friendshipGraph.findSuggestions(userId, 5),
+                    friendshipGraph.findSuggestions(userId, 5, friendIds, friendshipGraph::findFriendIds),
+                    "Предложения друзей из графа расходятся с базой для пользователя " + userId);
+        }
+    }
+
+    @Test
+    void findSuggestionsStopsAtVisitsLimit() {
+        FriendshipGraph graph = new FriendshipGraph(true, 2, 6);
+        for (int friendId = 2; friendId <= 5; friendId++) {
+            graph.saveFriend(1, friendId);
+            for (int candidateId = 10; candidateId < 20; candidateId++) {
+                graph.saveFriend(friendId, candidateId);
+            }
+        }
+        Assertions.assertArrayEquals(new int[]{10, 12, 13, 15, 16, 18}, graph.findSuggestions(1, 10),
+                "Ошибка ограничения обхода при получении предложений друзей.");
+    }
+
+    @Test
+    void findSuggestionsSamplesWholeFriendLists() {
+        FriendshipGraph graph = new FriendshipGraph(true, 10, 200);
+        for (int friendId = 2; friendId <= 11; friendId++) {
+            graph.saveFriend(1, friendId);
+            for (int i = 0; i < 80; i++) {
+                graph.saveFriend(friendId, 100 + (friendId - 2) * 80 + i);
+            }
+            for (int candidateId = 900; candidateId < 920; candidateId++) {
+                graph.saveFriend(friendId, candidateId);
+            }
+        }
+        Assertions.assertTrue(Arrays.stream(graph.findSuggestions(1, 5)).allMatch(candidateId -> candidateId >= 900),
+                "Предложения друзей ранжируются по идентификатору, а не по числу общих друзей.");
+    }
+
+    private void generate() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setUsers(100);
+        settings.setFilms(10);
+        settings.setDirectors(1);
+        settings.setReviews(0);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        userService.rebuildFriendshipGraph();
+    }
+
+    private List<Integer> findSuggestions(int userId, int count) {
+        Set<Integer> friendIds = toIds(userStorage.findFriends(userId)).stream().collect(Collectors.toSet());
+        Map<Integer, Integer> mutualFriends = new HashMap<>();
+        for (int friendId : friendIds) {
+            for (User candidate : userStorage.findFriends(friendId)) {
+                if (candidate.getId() != userId && !friendIds.contains(candidate.getId())) {
+                    mutualFriends.merge(candidate.getId(), 1, Integer::sum);
+                }
+            }
+        }
+        return mutualFriends.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private List<Integer> toIds(Collection<User> users, boolean sorted) {
+        return sorted ? toIds(users) : users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private List<Integer> toIds(Collection<User> users) {
+        return users.stream().map(User::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.DirectorNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ReviewNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Score;
+import ru.yandex.practicum.filmorate.service.DirectorsService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.dao.ReviewStorage;
+import ru.yandex.practicum.filmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmap;
+
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.id-bitmaps.enabled=true"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForReviewTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class IdBitmapTests {
+
+    private final UserService userService;
+    private final FilmService filmService;
+    private final ReviewService reviewService;
+    private final DirectorsService directorsService;
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final ReviewStorage reviewStorage;
+
+    @BeforeEach
+    void rebuildIds() {
+        userService.rebuildUserIds();
+        filmService.rebuildFilmIds();
+        reviewService.rebuildReviewIds();
+        directorsService.rebuildDirectorIds();
+    }
+
+    @Test
+    void existsMatchesStorage() {
+        Assertions.assertTrue(userStorage.exists(2), "Ошибка при проверке существующего пользователя.");
+        Assertions.assertFalse(userStorage.exists(3), "Ошибка при проверке отсутствующего пользователя.");
+        Assertions.assertFalse(filmStorage.exists(-1), "Ошибка при проверке некорректного ID фильма.");
+        Assertions.assertEquals(Set.of(0, 5, 99), filmStorage.existsAll(List.of(0, 1, 4, 5, 99)),
+                "Ошибка при поиске отсутствующих фильмов.");
+        Assertions.assertEquals(Set.of(1), reviewStorage.existsAll(List.of(1, 2, 5)),
+                "Ошибка при поиске отсутствующих отзывов.");
+        Assertions.assertThrows(FilmNotFoundException.class, () -> filmService.saveScore(new Score(99, 1, 5)),
+                "Ошибка при оценке отсутствующего фильма.");
+        Assertions.assertThrows(UserNotFoundException.class, () -> filmService.saveScore(new Score(1, 99, 5)),
+                "Ошибка при оценке фильма отсутствующим пользователем.");
+    }
+
+    @Test
+    void removeUserAndFilmClearsReviews() {
+        userService.removeUser(2);
+        Assertions.assertThrows(UserNotFoundException.class, () -> userService.checkExists(2),
+                "Удаленный пользователь остался в индексе.");
+        Assertions.assertThrows(ReviewNotFoundException.class, () -> reviewService.checkExists(4),
+                "Отзыв удаленного пользователя остался в индексе.");
+        filmService.removeFilm(3);
+        Assertions.assertThrows(FilmNotFoundException.class, () -> filmService.checkExists(3),
+                "Удаленный фильм остался в индексе.");
+        Assertions.assertEquals(Set.of(2, 4, 5), reviewStorage.existsAll(List.of(2, 3, 4, 5)),
+                "Отзывы удаленных пользователя и фильма остались в индексе.");
+    }
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        IdBitmap idBitmap = new IdBitmap(true);
+        idBitmap.add(1);
+        idBitmap.rebuild(consumer -> {
+            consumer.accept(1);
+            consumer.accept(2);
+            idBitmap.add(3);
+            idBitmap.remove(2);
+            idBitmap.removeAll(List.of(1));
+        });
+        Assertions.assertEquals(Set.of(1, 2, 4), idBitmap.findMissing(List.of(1, 2, 3, 4)),
+                "Изменения во время перестроения индекса потеряны.");
+    }
+
+    @Test
+    void saveAndRemoveDirector() {
+        Director director = directorsService.saveNew(new Director(null, "Director"));
+        directorsService.checkExists(director.getId());
+        directorsService.removeById(director.getId());
+        Assertions.assertThrows(DirectorNotFoundException.class, () -> directorsService.checkExists(director.getId()),
+                "Удаленный режиссер остался в индексе.");
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class NdjsonStreamTests {
+
+    private final MockMvc mockMvc;
+
+    @Test
+    void streamFilmsWithAnyAccept() throws Exception {
+        for (MediaType accept : new MediaType[]{MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON, MediaType.ALL}) {
+            Assertions.assertEquals(4, stream("/films", accept).split("\n").length,
+                    "Ошибка при потоковой выдаче фильмов с заголовком Accept " + accept);
+        }
+    }
+
+    @Test
+    void streamUsersWithAnyAccept() throws Exception {
+        for (MediaType accept : new MediaType[]{MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON, MediaType.ALL}) {
+            Assertions.assertEquals(3, stream("/users", accept).split("\n").length,
+                    "Ошибка при потоковой выдаче пользователей с заголовком Accept " + accept);
+        }
+    }
+
+    private String stream(String path, MediaType accept) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).param("stream", "true").accept(accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import javax.sql.DataSource;
+import java.util.Optional;
+
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:performance;DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("performance")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class PerformanceProfileTests {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final FilmService filmService;
+
+    @Test
+    void poolIsConfigured() {
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        Assertions.assertEquals(16, hikariDataSource.getMaximumPoolSize(), "Ошибка размера пула соединений.");
+        Assertions.assertEquals(10000, hikariDataSource.getLeakDetectionThreshold(),
+                "Ошибка порога обнаружения утечек соединений.");
+        Assertions.assertEquals("256", jdbcTemplate.queryForObject("SELECT SETTING_VALUE FROM "
+                        + "INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'QUERY_CACHE_SIZE'", String.class),
+                "Ошибка размера кэша запросов соединения.");
+    }
+
+    @Test
+    void poolMetricsAreRegistered() {
+        filmService.findPopular(10, Optional.empty(), Optional.empty());
+        Assertions.assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", "filmorate").gauge(),
+                "Метрика активных соединений не зарегистрирована.");
+        Assertions.assertTrue(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "filmorate").timer()
+                .count() > 0, "Метрика ожидания соединения не зарегистрирована.");
+    }
+}
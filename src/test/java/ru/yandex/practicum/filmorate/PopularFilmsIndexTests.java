@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.PopularFilmsIndex;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.popular-index.enabled=true", "filmorate.search-index.enabled=true"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class PopularFilmsIndexTests {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void rebuildIndex() {
+        filmService.rebuildPopularFilmsIndex();
+    }
+
+    @Test
+    void findPopularNormal() {
+        Assertions.assertEquals("[Film(name=second film, description=second description, releaseDate=2000-04-22, duration=100, id=2, genres=[Genre(id=1, name=Комедия)], mpa=Mpa(id=1, name=G), directors=[Director(id=2, name=Other Director)], rating=7.5), " +
+                        "Film(name=final film, description=final description, releaseDate=1987-04-22, duration=100, id=4, genres=[], mpa=Mpa(id=2, name=PG), directors=[], rating=3.0), " +
+                        "Film(name=new film, description=new description, releaseDate=2000-04-22, duration=100, id=1, genres=[Genre(id=1, name=Комедия)], mpa=Mpa(id=1, name=G), directors=[Director(id=1, name=Director)], rating=0.0), " +
+                        "Film(name=third film, description=third description, releaseDate=1976-04-22, duration=100, id=3, genres=[], mpa=Mpa(id=3, name=PG-13), directors=[Director(id=3, name=Other Man)], rating=0.0)]",
+                filmService.findPopular(10, Optional.empty(), Optional.empty()).toString(),
+                "Ошибка при получении популярных фильмов из индекса.");
+    }
+
+    @Test
+    void findPopularMatchesDatabase() {
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterScoresChanged() {
+        filmService.saveScore(new Score(1, 1, 9));
+        filmService.saveScore(new Score(3, 2, 1));
+        filmService.removeScore(2, 1);
+        Assertions.assertEquals(List.of(1, 2, 4, 3), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при обновлении индекса после изменения оценок.");
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterFilmUpdated() {
+        filmService.update(new Film("third film", "third description", LocalDate.of(2000, Month.APRIL, 22), 100L, 3,
+                List.of(new Genre(1, null)), new Mpa(3, null), new ArrayList<>(), null));
+        Assertions.assertEquals(List.of(2, 1, 3), findPopularIds(Optional.of(1), Optional.of(2000)),
+                "Ошибка при обновлении индекса после изменения фильма.");
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterFilmRemoved() {
+        filmService.removeFilm(2);
+        Assertions.assertEquals(List.of(4, 1, 3), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при обновлении индекса после удаления фильма.");
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterUserRemoved() {
+        userService.removeUser(2);
+        Assertions.assertEquals(List.of(2, 4, 1, 3), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при обновлении индекса после удаления пользователя.");
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterOnlyScorerRemoved() {
+        filmService.saveScore(new Score(3, 3, 10));
+        Assertions.assertEquals(List.of(3, 2, 4, 1), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при обновлении индекса после изменения оценок.");
+        userService.removeUser(3);
+        Assertions.assertEquals(List.of(2, 4, 1, 3), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при обновлении индекса после удаления единственного оценившего пользователя.");
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterRatingStatsRebuilt() {
+        jdbcTemplate.update("UPDATE FILM_RATING_STATS SET SCORE_SUM = 100 WHERE FILM_ID = 4");
+        jdbcTemplate.update("INSERT INTO FILM_RATING_STATS (FILM_ID, SCORE_SUM, SCORE_COUNT) VALUES (3, 10, 1)");
+        filmService.rebuildPopularFilmsIndex();
+        Assertions.assertEquals(List.of(4, 3, 2, 1), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при загрузке индекса с расхождением рейтингов.");
+        Assertions.assertEquals(List.of(3, 4), filmService.rebuildRatingStats(),
+                "Ошибка при поиске расхождений рейтингов.");
+        Assertions.assertEquals(List.of(2, 4, 1, 3), findPopularIds(Optional.empty(), Optional.empty()),
+                "Ошибка при обновлении индекса после пересчета рейтингов.");
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void findPopularAfterConcurrentScores() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int filmId = 1; filmId <= 4; filmId++) {
+            int scoredFilmId = filmId;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(scoredFilmId);
+                for (int i = 0; i < 30; i++) {
+                    filmService.saveScore(new Score(scoredFilmId, 1 + i % 3, 1 + random.nextInt(10)));
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertIndexMatchesDatabase();
+    }
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        PopularFilmsIndex index = new PopularFilmsIndex(true);
+        index.save(indexedFilm(1, 5.0));
+        index.rebuild(rebuilt -> {
+            rebuilt.load(List.of(indexedFilm(1, 5.0), indexedFilm(2, 4.0)));
+            index.remove(1);
+            index.save(indexedFilm(3, 9.0));
+            index.updateRatings(Map.of(2, 1.0));
+            Assertions.assertEquals(List.of(3), index.findPopular(10, Optional.empty(), Optional.empty()),
+                    "Индекс изменился до окончания перестроения.");
+        });
+        Assertions.assertEquals(List.of(3, 2), index.findPopular(10, Optional.empty(), Optional.empty()),
+                "Изменения во время перестроения индекса потеряны.");
+    }
+
+    @Test
+    void rankOrdersByRatingAfterCursor() {
+        PopularFilmsIndex index = new PopularFilmsIndex(true);
+        index.load(List.of(indexedFilm(1, 5.0), indexedFilm(2, 7.0), indexedFilm(3, 5.0), indexedFilm(4, 2.0),
+                indexedFilm(5, 9.0)));
+        Assertions.assertEquals(List.of(2, 1, 3, 4), index.rank(List.of(4, 3, 2, 1, 6), 10, Double.MAX_VALUE, 0),
+                "Ошибка при ранжировании фильмов по рейтингу.");
+        Assertions.assertEquals(List.of(5, 2), index.rank(List.of(1, 2, 3, 4, 5), 2, Double.MAX_VALUE, 0),
+                "Ошибка при ранжировании фильмов с ограничением.");
+        Assertions.assertEquals(List.of(3, 4), index.rank(List.of(1, 2, 3, 4, 5), 10, 5.0, 1),
+                "Ошибка при ранжировании фильмов после курсора.");
+    }
+
+    @Test
+    void searchRanksByIndexedRatings() {
+        filmService.saveScore(new Score(1, 1, 9));
+        filmService.saveScore(new Score(3, 2, 4));
+        filmService.rebuildFilmSearchIndex();
+        for (String query : List.of("", "film", "dIr", "oThEr", "nothing")) {
+            List<Integer> pages = new ArrayList<>();
+            Optional<String> cursor = Optional.empty();
+            do {
+                Page<Film> page = filmService.searchByFilmAndDirector(query, "title,director", Optional.of(1), cursor);
+                pages.addAll(toIds(page.getItems()));
+                cursor = Optional.ofNullable(page.getNext());
+            } while (cursor.isPresent());
+            List<Integer> expected = toIds(filmStorage.searchByFilmAndDirector(query));
+            Assertions.assertEquals(expected, toIds(filmService.searchByFilmAndDirector(query, "title,director")),
+                    "Поиск по рейтингу из индекса расходится с БД: " + query);
+            Assertions.assertEquals(expected, pages,
+                    "Постраничный поиск по рейтингу из индекса расходится с БД: " + query);
+        }
+    }
+
+    private void assertIndexMatchesDatabase() {
+        for (Optional<Integer> genreId : List.of(Optional.<Integer>empty(), Optional.of(1), Optional.of(2))) {
+            for (Optional<Integer> year : List.of(Optional.<Integer>empty(), Optional.of(1987), Optional.of(2000))) {
+                Assertions.assertEquals(findPopularIdsInDatabase(genreId, year), findPopularIds(genreId, year),
+                        "Индекс популярных фильмов расходится с БД для жанра " + genreId + " и года " + year + ".");
+            }
+        }
+    }
+
+    private List<Integer> findPopularIds(Optional<Integer> genreId, Optional<Integer> year) {
+        return toIds(filmService.findPopular(10, genreId, year));
+    }
+
+    private List<Integer> findPopularIdsInDatabase(Optional<Integer> genreId, Optional<Integer> year) {
+        if (genreId.isPresent() && year.isPresent()) {
+            return toIds(filmStorage.findPopularByGenreAndYear(10, genreId.get(), year.get()));
+        } else if (genreId.isPresent()) {
+            return toIds(filmStorage.findPopularByGenre(10, genreId.get()));
+        } else if (year.isPresent()) {
+            return toIds(filmStorage.findPopularByYear(10, year.get()));
+        }
+        return toIds(filmStorage.findPopular(10));
+    }
+
+    private List<Integer> toIds(Collection<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private Film indexedFilm(int filmId, double rating) {
+        return Film.builder()
+                .id(filmId)
+                .name("film " + filmId)
+                .releaseDate(LocalDate.of(2000, Month.APRIL, 22))
+                .duration(100L)
+                .genres(List.of())
+                .rating(rating)
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.SortType;
+import ru.yandex.practicum.filmorate.storage.dao.*;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class QueryPlanTests {
+
+    private static final int FILMS_COUNT = 500;
+    private static final int USERS_COUNT = 200;
+    private static final int DIRECTORS_COUNT = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ReviewStorage reviewStorage;
+    private final FeedStorage feedStorage;
+    private final GenresStorage genresStorage;
+    private final DirectorStorage directorStorage;
+    private final MpaStorage mpaStorage;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> films = new ArrayList<>();
+        List<Object[]> filmGenres = new ArrayList<>();
+        List<Object[]> filmDirectors = new ArrayList<>();
+        for (int filmId = 1; filmId <= FILMS_COUNT; filmId++) {
+            films.add(new Object[]{filmId, "film " + filmId, Date.valueOf(LocalDate.of(1950 + filmId % 70, 1 + filmId % 12, 1)),
+                    1 + filmId % 5});
+            filmGenres.add(new Object[]{filmId, 1 + filmId % 6});
+            filmDirectors.add(new Object[]{filmId, 1 + filmId % DIRECTORS_COUNT});
+        }
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> friends = new ArrayList<>();
+        List<Object[]> scores = new ArrayList<>();
+        List<Object[]> reviews = new ArrayList<>();
+        List<Object[]> reviewLikes = new ArrayList<>();
+        List<Object[]> feeds = new ArrayList<>();
+        for (int userId = 1; userId <= USERS_COUNT; userId++) {
+            users.add(new Object[]{userId, "user" + userId, "user" + userId + "@mail.ru"});
+            for (int i = 1; i <= 5; i++) {
+                friends.add(new Object[]{1 + (userId + i) % USERS_COUNT, userId});
+                scores.add(new Object[]{1 + (userId * 7 + i) % FILMS_COUNT, userId, 1 + (userId + i) % 10});
+                feeds.add(new Object[]{userId, i});
+            }
+            reviews.add(new Object[]{userId, "review " + userId, userId, 1 + userId % FILMS_COUNT});
+            reviewLikes.add(new Object[]{1 + userId % USERS_COUNT, userId});
+        }
+        jdbcTemplate.update("INSERT INTO DIRECTORS SELECT X, CONCAT('director ', X) FROM SYSTEM_RANGE(1, ?)",
+                DIRECTORS_COUNT);
+        jdbcTemplate.batchUpdate("INSERT INTO FILMS VALUES (?, ?, 'description', ?, 100, ?)", films);
+        jdbcTemplate.batchUpdate("INSERT INTO FILM_GENRES VALUES (?, ?)", filmGenres);
+        jdbcTemplate.batchUpdate("INSERT INTO FILM_DIRECTOR VALUES (?, ?)", filmDirectors);
+        jdbcTemplate.batchUpdate("INSERT INTO USERS VALUES (?, ?, 'login', ?, '1990-01-01')", users);
+        jdbcTemplate.batchUpdate("INSERT INTO LIST_OF_FRIENDS VALUES (?, ?, 1)", friends);
+        jdbcTemplate.batchUpdate("MERGE INTO FILM_SCORE VALUES (?, ?, ?)", scores);
+        jdbcTemplate.batchUpdate("INSERT INTO REVIEWS (REVIEW_ID, CONTENT, USER_ID, FILM_ID, IS_POSITIVE) " +
+                "VALUES (?, ?, ?, ?, TRUE)", reviews);
+        jdbcTemplate.batchUpdate("INSERT INTO REVIEWS_LIKES VALUES (?, ?, 1)", reviewLikes);
+        jdbcTemplate.batchUpdate("INSERT INTO FEEDS (TIMESTAMP, USER_ID, ENTITY_ID, EVENT_TYPE_ID, OPERATION_ID) " +
+                "VALUES (NOW(), ?, ?, 1, 1)", feeds);
+        filmStorage.rebuildRatingStats();
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void keyLookupsDoNotScanTables() {
+        List<String> statements = collectStatements(() -> {
+            filmStorage.findById(10);
+            filmStorage.findAllAfter(10, 20);
+            filmStorage.findByIds(List.of(1, 2, 3));
+            filmStorage.findPopularByGenre(10, 2);
+            filmStorage.findPopularByYear(10, 2000);
+            filmStorage.findPopularByGenreAndYear(10, 2, 2000);
+            filmStorage.findByDirectorId(3, SortType.ratings);
+            filmStorage.findByDirectorId(3, SortType.year);
+            filmStorage.findScoredFilmIds(5);
+            filmStorage.findRating(10);
+            filmStorage.findRatingsByFilmIds(List.of(1, 2, 3));
+            filmStorage.findCommonFilms(5, 6);
+            filmStorage.saveScore(10, 5, 7);
+            filmStorage.removeScore(10, 5);
+            genresStorage.findByFilmId(10);
+            genresStorage.findByFilmIds(List.of(1, 2, 3));
+            directorStorage.findByFilmId(10);
+            directorStorage.findByFilmIds(List.of(1, 2, 3));
+            mpaStorage.findByFilmId(10);
+            mpaStorage.findByFilmIds(List.of(1, 2, 3));
+            userStorage.findById(10);
+            userStorage.findByIds(new int[]{1, 2, 3});
+            userStorage.findFriends(10);
+            userStorage.findAllAfter(10, 20);
+            userStorage.findFriendsAfter(10, 10, 5);
+            userStorage.findCommonFriends(10, 11);
+            userStorage.removeFriend(10, 11);
+            reviewStorage.findById(10);
+            reviewStorage.findAll(10);
+            reviewStorage.findAllAfter(10, 0, 10);
+            reviewStorage.findByFilmId(11, 10);
+            reviewStorage.findByFilmIdAfter(11, 10, 0, 10);
+            reviewStorage.isLikeExists(11, 10);
+            reviewStorage.isDislikeExists(11, 10);
+            reviewStorage.removeLike(11, 10);
+            reviewStorage.saveLike(11, 10, -1);
+            feedStorage.findFeed(10);
+            feedStorage.findFeedAfter(10, 10, new Timestamp(0), 2);
+            feedStorage.findFeedBefore(10, 10, new Timestamp(System.currentTimeMillis()), 2);
+            feedStorage.findFeedAfterEventId(10, 10, 2);
+            feedStorage.findAfterEventId(1000, feed -> {
+            });
+            feedStorage.findMonthsBefore(200001);
+            feedStorage.findByMonth(200001, feed -> {
+            });
+            feedStorage.removeByMonth(200001, 10);
+            userStorage.removeUser(20);
+            filmStorage.removeFilm(30);
+        });
+        Assertions.assertFalse(statements.isEmpty(), "Ошибка при сборе статистики запросов.");
+        Map<String, String> tableScans = statements.stream()
+                .filter(statement -> statement.matches("(?is)(SELECT|UPDATE|DELETE|MERGE)\\s.*"))
+                .collect(Collectors.toMap(statement -> statement, this::explain))
+                .entrySet().stream()
+                .filter(plan -> plan.getValue().contains(".tableScan"))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Assertions.assertTrue(tableScans.isEmpty(), "Запросы к хранилищам выполняются полным просмотром таблиц: " +
+                String.join("\n\n", tableScans.values()));
+    }
+
+    private List<String> collectStatements(Runnable action) {
+        jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+        try {
+            action.run();
+            return jdbcTemplate.queryForList("SELECT SQL_STATEMENT FROM INFORMATION_SCHEMA.QUERY_STATISTICS", String.class);
+        } finally {
+            jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        }
+    }
+
+    private String explain(String statement) {
+        return jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + statement),
+                resultSet -> resultSet.next() ? resultSet.getString(1) : "");
+    }
+}
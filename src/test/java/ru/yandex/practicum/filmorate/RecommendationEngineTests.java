@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Score;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.RecommendationEngine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.recommendations.enabled=true",
+        "filmorate.recommendations.recentre-tolerance=0", "filmorate.recommendations.max-user-scores=8"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class RecommendationEngineTests {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final RecommendationEngine recommendationEngine;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void rebuildEngine() {
+        filmService.rebuildRecommendationEngine();
+    }
+
+    @Test
+    void getRecommendationNormal() {
+        filmService.saveScore(new Score(2, 3, 9));
+        filmService.saveScore(new Score(4, 3, 1));
+        filmService.saveScore(new Score(3, 3, 10));
+        filmService.saveScore(new Score(1, 3, 2));
+        Assertions.assertEquals(List.of(3), toIds(filmService.getRecommendation(1)),
+                "Ошибка при получении рекомендаций.");
+    }
+
+    @Test
+    void getRecommendationWithoutScores() {
+        Assertions.assertTrue(filmService.getRecommendation(3).isEmpty(),
+                "Ошибка при получении рекомендаций для пользователя без оценок.");
+    }
+
+    @Test
+    void getRecommendationWithWrongCount() {
+        Assertions.assertThrows(ValidationException.class, () -> filmService.getRecommendation(1, 0),
+                "Ошибка при получении рекомендаций с неверным количеством.");
+    }
+
+    @Test
+    void getRecommendationExcludesScoredFilmsAndRespectsCount() {
+        generate();
+        for (int userId = 1; userId <= 50; userId++) {
+            List<Integer> recommendations = toIds(filmService.getRecommendation(userId, 5));
+            Assertions.assertTrue(recommendations.size() <= 5, "Ошибка при ограничении количества рекомендаций.");
+            for (int filmId : filmStorage.findScoredFilmIds(userId)) {
+                Assertions.assertFalse(recommendations.contains(filmId),
+                        "В рекомендации попал фильм, уже оцененный пользователем.");
+            }
+        }
+    }
+
+    @Test
+    void getRecommendationAfterUpdatesMatchesRebuild() {
+        generate();
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            int userId = 1 + random.nextInt(60);
+            int filmId = 1 + random.nextInt(40);
+            if (random.nextInt(3) == 0) {
+                filmService.removeScore(filmId, userId);
+            } else {
+                filmService.saveScore(new Score(filmId, userId, 1 + random.nextInt(10)));
+            }
+        }
+        userService.removeUser(7);
+        filmService.removeFilm(3);
+        recommendationEngine.recentre();
+        List<List<Integer>> incremental = findRecommendations();
+        filmService.rebuildRecommendationEngine();
+        Assertions.assertEquals(findRecommendations(), incremental,
+                "Рекомендации после изменения оценок расходятся с пересчитанной моделью.");
+        Assertions.assertTrue(incremental.stream().anyMatch(recommendations -> !recommendations.isEmpty()),
+                "Ошибка при получении рекомендаций.");
+    }
+
+    @Test
+    void getRecommendationAfterBulkScoresMatchesRebuild() {
+        generate();
+        Random random = new Random(11);
+        List<Score> scores = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            scores.add(new Score(1 + random.nextInt(40), 1 + random.nextInt(60), 1 + random.nextInt(10)));
+        }
+        filmService.saveScores(scores.iterator());
+        recommendationEngine.recentre();
+        List<List<Integer>> incremental = findRecommendations();
+        filmService.rebuildRecommendationEngine();
+        Assertions.assertEquals(findRecommendations(), incremental,
+                "Рекомендации после пакетного добавления оценок расходятся с пересчитанной моделью.");
+        Assertions.assertTrue(filmService.rebuildRatingStats().isEmpty(),
+                "Рейтинги после пакетного добавления оценок расходятся с оценками пользователей.");
+    }
+
+    @Test
+    void getRecommendationIgnoresScoresAboveUserCap() {
+        List<Score> scores = new ArrayList<>(List.of(new Score(1, 1, 10), new Score(2, 1, 10), new Score(3, 1, 1),
+                new Score(1, 2, 10), new Score(2, 2, 10), new Score(3, 2, 1), new Score(1, 3, 10)));
+        RecommendationEngine uncapped = new RecommendationEngine(true, 10, 0, 3);
+        uncapped.load(scores);
+        Assertions.assertEquals(List.of(2), uncapped.findRecommendations(3, 10),
+                "Ошибка при получении рекомендаций.");
+        RecommendationEngine capped = new RecommendationEngine(true, 10, 0, 2);
+        for (int i = scores.size() - 1; i >= 0; i--) {
+            capped.saveScore(scores.get(i).getUserId(), scores.get(i).getFilmId(), scores.get(i).getScore());
+        }
+        capped.recentre();
+        Assertions.assertTrue(capped.findRecommendations(3, 10).isEmpty(),
+                "Оценки сверх ограничения на пользователя попали в модель.");
+        capped.removeScore(1, 3);
+        capped.recentre();
+        scores.remove(new Score(3, 1, 1));
+        RecommendationEngine rebuilt = new RecommendationEngine(true, 10, 0, 2);
+        rebuilt.load(scores);
+        Assertions.assertEquals(List.of(2), rebuilt.findRecommendations(3, 10),
+                "Ошибка при получении рекомендаций.");
+        for (int userId = 1; userId <= 3; userId++) {
+            Assertions.assertEquals(rebuilt.findRecommendations(userId, 10), capped.findRecommendations(userId, 10),
+                    "Рекомендации после изменения оценок расходятся с пересчитанной моделью.");
+        }
+    }
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        RecommendationEngine engine = new RecommendationEngine(true, 10, 0, 200);
+        engine.rebuild(rebuilt -> {
+            rebuilt.load(List.of(new Score(1, 1, 10), new Score(2, 1, 10), new Score(1, 2, 10)));
+            engine.saveScore(3, 1, 10);
+            engine.saveScore(2, 3, 1);
+            engine.removeScore(2, 3);
+            Assertions.assertTrue(engine.findRecommendations(3, 10).isEmpty(),
+                    "Модель изменилась до окончания перестроения.");
+        });
+        engine.recentre();
+        Assertions.assertEquals(List.of(2), engine.findRecommendations(3, 10),
+                "Изменения во время перестроения модели потеряны.");
+        Assertions.assertEquals(List.of(2), engine.findRecommendations(2, 10),
+                "Изменения во время перестроения модели потеряны.");
+    }
+
+    private void generate() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setUsers(100);
+        settings.setFilms(60);
+        settings.setDirectors(5);
+        settings.setReviews(0);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        filmService.rebuildRecommendationEngine();
+    }
+
+    private List<List<Integer>> findRecommendations() {
+        List<List<Integer>> recommendations = new ArrayList<>();
+        for (int userId = 1; userId <= 60; userId++) {
+            if (userId != 7) {
+                recommendations.add(toIds(filmService.getRecommendation(userId)));
+            }
+        }
+        return recommendations;
+    }
+
+    private List<Integer> toIds(Collection<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.DirectorNotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.service.DirectorsService;
+import ru.yandex.practicum.filmorate.service.GenresService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"spring.cache.type=caffeine", "filmorate.cache.directors.maximum-size=2"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ReferenceCacheTests {
+
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final GenresService genresService;
+    private final DirectorsService directorsService;
+    private final UserService userService;
+
+    @BeforeEach
+    void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void findGenreCountsHitsAndMisses() {
+        double hits = cacheGets(CacheConfig.GENRES, "hit");
+        double misses = cacheGets(CacheConfig.GENRES, "miss");
+        genresService.findById(1);
+        genresService.findById(1);
+        genresService.findById(1);
+        Assertions.assertEquals(misses + 1, cacheGets(CacheConfig.GENRES, "miss"),
+                "Ошибка при подсчете промахов кэша жанров.");
+        Assertions.assertEquals(hits + 2, cacheGets(CacheConfig.GENRES, "hit"),
+                "Ошибка при подсчете попаданий в кэш жанров.");
+    }
+
+    @Test
+    void updateDirectorInvalidatesCache() {
+        Assertions.assertEquals(new Director(1, "Director"), directorsService.findById(1));
+        directorsService.update(new Director(1, "Director update"));
+        Assertions.assertEquals(new Director(1, "Director update"), directorsService.findById(1),
+                "Ошибка при сбросе кэша режиссеров после обновления.");
+    }
+
+    @Test
+    void removeDirectorInvalidatesCache() {
+        directorsService.findById(1);
+        directorsService.removeById(1);
+        Assertions.assertThrows(DirectorNotFoundException.class, () -> directorsService.findById(1),
+                "Ошибка при сбросе кэша режиссеров после удаления.");
+    }
+
+    @Test
+    void directorsCacheIsBounded() {
+        directorsService.findById(1);
+        directorsService.findById(2);
+        directorsService.findById(3);
+        Cache<Object, Object> directors = ((CaffeineCache) cacheManager.getCache(CacheConfig.DIRECTORS)).getNativeCache();
+        directors.cleanUp();
+        Assertions.assertEquals(2, directors.estimatedSize(), "Ошибка при ограничении размера кэша режиссеров.");
+    }
+
+    @Test
+    void saveFriendUsesCachedFriendshipStatuses() {
+        userService.saveFriend(1, 2);
+        userService.saveFriend(2, 1);
+        userService.saveFriend(1, 3);
+        Assertions.assertEquals(2, ((CaffeineCache) cacheManager.getCache(CacheConfig.FRIENDSHIP_STATUSES))
+                        .getNativeCache().estimatedSize(),
+                "Ошибка при кэшировании статусов дружбы.");
+    }
+
+    private double cacheGets(String cacheName, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", result).functionCounter().count();
+    }
+}
@@ -8,19 +8,23 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.*;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @SpringBootTest
@@ -34,6 +38,8 @@ class ReviewServiceTests {
     private final ReviewService reviewService;
     private final Validator validator;
     private final FeedStorage feedStorage;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
 
     static Stream<Review> wrongReviewParameters() {
         return Stream.of(
@@ -199,6 +205,47 @@ class ReviewServiceTests {
                 "Ошибка при нормальном поиске всех отзывов.");
     }
 
+    @Test
+    void findAllWithCountReturnsMostUseful() {
+        reviewService.saveLike(1, 5, Optional.of("like"));
+        Assertions.assertEquals(List.of(4, 2), toIds(reviewService.findAll(2)),
+                "Ошибка при поиске самых полезных отзывов.");
+    }
+
+    @Test
+    void findAllByPages() {
+        Assertions.assertEquals(List.of(4, 2), toIds(reviewService.findAll(2, Optional.empty(), Optional.empty())),
+                "Ошибка при получении первой страницы отзывов.");
+        Assertions.assertEquals(List.of(3, 5), toIds(reviewService.findAll(2, Optional.of(0), Optional.of(2))),
+                "Ошибка при получении второй страницы отзывов.");
+        Assertions.assertTrue(reviewService.findAll(2, Optional.of(-1), Optional.of(5)).isEmpty(),
+                "Ошибка при получении последней страницы отзывов.");
+    }
+
+    @Test
+    void findByFilmIdByPages() {
+        Assertions.assertEquals(List.of(3), toIds(reviewService.findByFilmId(2, 10, Optional.of(0), Optional.of(2))),
+                "Ошибка при получении страницы отзывов фильма.");
+    }
+
+    @Test
+    void findAllWithIncompletePage() {
+        ValidationException exception = Assertions.assertThrows(ValidationException.class, () ->
+                reviewService.findAll(2, Optional.of(0), Optional.empty()));
+        Assertions.assertEquals("Параметры afterUseful и afterId должны указываться вместе.", exception.getMessage(),
+                "Ошибка при поиске отзывов c неполными параметрами страницы.");
+    }
+
+    @Test
+    void findAllQueryCountDoesNotDependOnReviewsCount() {
+        int queriesForFewReviews = countQueries(() -> reviewService.findAll(100));
+        for (int reviewId = 6; reviewId < 26; reviewId++) {
+            jdbcTemplate.update("INSERT INTO REVIEWS VALUES (?, ?, 1, 1, TRUE, 0)", reviewId, "content " + reviewId);
+        }
+        Assertions.assertEquals(queriesForFewReviews, countQueries(() -> reviewService.findAll(100)),
+                "Количество запросов к БД при получении отзывов зависит от количества отзывов.");
+    }
+
     @Test
     void findAllWithNegativeCount() {
         ValidationException exception = Assertions.assertThrows(ValidationException.class, () ->
@@ -210,7 +257,7 @@ class ReviewServiceTests {
 
     @Test
     void findByFilmIdNormal() {
-        Assertions.assertEquals("[Review(content=last content, userId=1, filmId=2, isPositive=false, useful=0, reviewId=3)]",
+        Assertions.assertEquals("[Review(content=other content, userId=2, filmId=2, isPositive=true, useful=0, reviewId=2)]",
                 reviewService.findByFilmId(2, 1).toString(),
                 "Ошибка при нормальном поиске отзыва по ид.");
     }
@@ -296,6 +343,14 @@ class ReviewServiceTests {
                 "Ошибка при установке лайка отзыву c неправильным типом оценки.");
     }
 
+    @Test
+    void removeUserUpdatesUseful() {
+        reviewService.saveLike(2, 4, Optional.of("like"));
+        userService.removeUser(1);
+        Assertions.assertEquals(1, reviewService.findById(4).getUseful(),
+                "Ошибка при пересчете полезности отзыва после удаления пользователя.");
+    }
+
     @Test
     void removeLikeNormal() {
         reviewService.removeLike(1, 4, Optional.of("like"));
@@ -372,4 +427,21 @@ class ReviewServiceTests {
         Assertions.assertFalse(reviewService.isExists(new Review("c", 1, 2, true, null, 99)),
                 "Ошибка при проверке несущетсвующего отзыва.");
     }
-}
\ No newline at end of file
+
+    private List<Integer> toIds(Collection<Review> reviews) {
+        return reviews.stream().map(Review::getReviewId).collect(Collectors.toList());
+    }
+
+    private int countQueries(Runnable action) {
+        jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+        try {
+            action.run();
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT SUM(EXECUTION_COUNT) FROM INFORMATION_SCHEMA.QUERY_STATISTICS", Integer.class);
+            return count == null ? 0 : count;
+        } finally {
+            jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.config.StorageMetricsAspect;
+import ru.yandex.practicum.filmorate.exceptions.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@TestPropertySource(properties = {"management.endpoints.web.exposure.include=prometheus",
+        "management.metrics.distribution.percentiles-histogram.filmorate.storage=true",
+        "management.metrics.distribution.percentiles-histogram.http.server.requests=true"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class StorageMetricsTests {
+
+    private final MockMvc mockMvc;
+    private final MeterRegistry meterRegistry;
+    private final FilmService filmService;
+
+    @Test
+    void storageCallsAreMeasured() {
+        long calls = countCalls("FilmDbStorage", "findPopular");
+        filmService.findPopular(10, Optional.empty(), Optional.empty());
+        Assertions.assertEquals(calls + 1, countCalls("FilmDbStorage", "findPopular"),
+                "Вызов хранилища не учтен в метриках.");
+        Assertions.assertTrue(meterRegistry.get(StorageMetricsAspect.ROWS)
+                        .tags("storage", "FilmDbStorage", "method", "findPopular").summary().max() > 0,
+                "Количество строк из хранилища не учтено в метриках.");
+    }
+
+    @Test
+    void storageErrorsAreCounted() {
+        double errors = countErrors();
+        Assertions.assertThrows(FilmNotFoundException.class, () -> filmService.findById(99),
+                "Ошибка при получении отсутствующего фильма.");
+        Assertions.assertEquals(errors + 1, countErrors(), "Ошибка хранилища не учтена в метриках.");
+    }
+
+    @Test
+    void prometheusEndpointExposesHistograms() throws Exception {
+        mockMvc.perform(get("/films/popular")).andExpect(status().isOk());
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(body.contains("filmorate_storage_calls_seconds_bucket{"),
+                "Гистограмма вызовов хранилища не опубликована.");
+        Assertions.assertTrue(body.contains("http_server_requests_seconds_bucket{"),
+                "Гистограмма запросов к эндпоинтам не опубликована.");
+        Assertions.assertTrue(body.contains("uri=\"/films/popular\""), "Метрики эндпоинта не опубликованы.");
+    }
+
+    private long countCalls(String storage, String method) {
+        return Optional.ofNullable(meterRegistry.find(StorageMetricsAspect.CALLS)
+                        .tags("storage", storage, "method", method).timer())
+                .map(Timer::count)
+                .orElse(0L);
+    }
+
+    private double countErrors() {
+        return Optional.ofNullable(meterRegistry.find(StorageMetricsAspect.ERRORS)
+                        .tags("storage", "FilmDbStorage", "method", "findById", "exception", "FilmNotFoundException")
+                        .counter())
+                .map(Counter::count)
+                .orElse(0.0);
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.generator.DataGenerator;
+import ru.yandex.practicum.filmorate.generator.GeneratorSettings;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.Score;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.index.TimelineIndex;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(properties = {"filmorate.timeline.enabled=true", "filmorate.timeline.capacity=1000",
+        "filmorate.timeline.fan-out-limit=10", "filmorate.timeline.snapshot-file=target/timeline-tests/snapshot.gz"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(value = {"/schema.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(value = {"/dataForFilmTests.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class TimelineIndexTests {
+
+    private final UserService userService;
+    private final FilmService filmService;
+    private final FeedStorage feedStorage;
+    private final TimelineIndex timelineIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void rebuildIndex() {
+        userService.rebuildTimelineIndex();
+    }
+
+    @Test
+    void findTimelineNormal() {
+        filmService.saveScore(new Score(1, 2, 6));
+        userService.saveFriend(1, 2);
+        filmService.saveScore(new Score(3, 2, 8));
+        userService.saveFriend(2, 3);
+        filmService.saveScore(new Score(4, 3, 1));
+        Assertions.assertEquals("[2 FRIEND 3, 2 SCORE 3, 2 SCORE 1]", toString(findTimeline(1)),
+                "Ошибка при получении ленты друзей.");
+        Assertions.assertEquals("[3 SCORE 4]", toString(findTimeline(2)), "Ошибка при получении ленты друзей.");
+        Assertions.assertTrue(findTimeline(3).isEmpty(), "Ошибка при получении пустой ленты друзей.");
+        userService.removeFriend(1, 2);
+        Assertions.assertTrue(findTimeline(1).isEmpty(), "Ошибка при получении ленты друзей после удаления друга.");
+    }
+
+    @Test
+    void findTimelineMatchesFriendsFeeds() {
+        generate();
+        Random random = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            int userId = 1 + random.nextInt(100);
+            int friendId = 1 + random.nextInt(100);
+            if (userId != friendId && userService.findFriends(userId).stream().noneMatch(user -> user.getId() == friendId)) {
+                userService.saveFriend(userId, friendId);
+            }
+            filmService.saveScore(new Score(1 + random.nextInt(50), userId, 1 + random.nextInt(10)));
+        }
+        userService.saveFriend(1, 2);
+        userService.removeFriend(1, 2);
+        userService.removeUser(5);
+        for (int userId = 1; userId <= 100; userId++) {
+            if (userId != 5) {
+                Assertions.assertEquals(toString(findFriendsFeeds(userId)), toString(findTimeline(userId)),
+                        "Лента друзей расходится с событиями друзей пользователя " + userId);
+            }
+        }
+    }
+
+    @Test
+    void rebuildRestoresTimelineFromSnapshot() {
+        userService.saveFriend(1, 2);
+        userService.saveFriend(1, 3);
+        filmService.saveScore(new Score(1, 2, 6));
+        filmService.saveScore(new Score(3, 3, 8));
+        String timeline = toString(findTimeline(1));
+        timelineIndex.saveSnapshot();
+        jdbcTemplate.update("DELETE FROM FEEDS");
+        userService.rebuildTimelineIndex();
+        Assertions.assertEquals(timeline, toString(findTimeline(1)), "Ошибка при загрузке снимка лент друзей.");
+    }
+
+    @Test
+    void rebuildDiscardsSnapshotOfRecreatedDatabase() {
+        userService.saveFriend(1, 2);
+        filmService.saveScore(new Score(1, 2, 6));
+        filmService.saveScore(new Score(3, 2, 8));
+        timelineIndex.saveSnapshot();
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"),
+                new ClassPathResource("dataForFilmTests.sql")).execute(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        userService.saveFriend(1, 3);
+        filmService.saveScore(new Score(4, 3, 7));
+        userService.rebuildTimelineIndex();
+        Assertions.assertEquals(toString(findFriendsFeeds(1)), toString(findTimeline(1)),
+                "Снимок лент друзей из пересозданной базы данных не отброшен.");
+    }
+
+    @Test
+    void rebuildKeepsConcurrentChanges() {
+        TimelineIndex index = new TimelineIndex(true, 10, 10, 1000, "");
+        index.rebuild(rebuilt -> {
+            rebuilt.saveFriend(1, 2);
+            rebuilt.saveFriend(1, 3);
+            index.removeFriend(1, 3);
+            index.saveFeeds(List.of(feed(1, 2), feed(2, 3)));
+        });
+        Assertions.assertEquals(List.of(1), index.findTimeline(1, 10, new Timestamp(Long.MAX_VALUE),
+                        Integer.MAX_VALUE).getFeeds().stream().map(Feed::getEventId).collect(Collectors.toList()),
+                "Изменения во время перестроения лент потеряны.");
+    }
+
+    private void generate() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setUsers(100);
+        settings.setFilms(50);
+        settings.setDirectors(5);
+        settings.setReviews(0);
+        new DataGenerator(jdbcTemplate).generate(settings);
+        userService.rebuildTimelineIndex();
+    }
+
+    private List<Feed> findTimeline(int userId) {
+        List<Feed> feeds = new ArrayList<>();
+        Optional<String> cursor = Optional.empty();
+        do {
+            Page<Feed> page = userService.findTimeline(userId, Optional.of(7), cursor);
+            feeds.addAll(page.getItems());
+            cursor = Optional.ofNullable(page.getNext());
+        } while (cursor.isPresent());
+        return feeds;
+    }
+
+    private List<Feed> findFriendsFeeds(int userId) {
+        return userService.findFriends(userId).stream()
+                .map(User::getId)
+                .flatMap(friendId -> feedStorage.findFeed(friendId).stream())
+                .sorted(Comparator.comparing(Feed::getTimestamp).thenComparing(Feed::getEventId).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private String toString(List<Feed> feeds) {
+        return feeds.stream()
+                .map(feed -> feed.getUserId() + " " + feed.getEventType() + " " + feed.getEntityId())
+                .collect(Collectors.toList())
+                .toString();
+    }
+
+    private Feed feed(int eventId, int userId) {
+        return Feed.builder()
+                .eventId(eventId)
+                .timestamp(new Timestamp(eventId))
+                .userId(userId)
+                .entityId(1)
+                .eventType(EventType.SCORE)
+                .operation(Operation.ADD)
+                .build();
+    }
+}
@@ -9,9 +9,11 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import ru.yandex.practicum.filmorate.exceptions.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.dao.FeedStorage;
@@ -22,7 +24,9 @@ import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 @SpringBootTest
@@ -35,6 +39,7 @@ class UserServiceUnitTests {
     private final Validator validator;
     private final UserService userService;
     private final FeedStorage feedStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     static Stream<User> userWithWrongParameters() {
         return Stream.of(
@@ -124,6 +129,16 @@ class UserServiceUnitTests {
                 "Ошибка при нормальном получении списка юзеров.");
     }
 
+    @Test
+    void streamAllUsersNormal() {
+        userService.saveNew(new User("abc@acb.ru", "login", "name", LocalDate.of(1986, Month.APRIL, 13), null));
+        userService.saveNew(new User("cba@acb.ru", "other", "other", LocalDate.of(1990, Month.MAY, 1), null));
+        List<User> users = new ArrayList<>();
+        userService.streamAll(users::add);
+        Assertions.assertEquals(userService.findAll().toString(), users.toString(),
+                "Ошибка при потоковом получении списка юзеров.");
+    }
+
     @Test
     void findUserByIdNormal() {
         User user = new User("abc@acb.ru", "login", "name", LocalDate.of(1986, Month.APRIL, 13), null);
@@ -513,4 +528,50 @@ class UserServiceUnitTests {
         Assertions.assertEquals("Пользователь c ID 99 не найден.", exception.getMessage(),
                 "Ошибка в получении ошибка при поиске общих друзей юзера с ID 99.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllUsersByPages() {
+        insertUsers();
+        List<User> users = collectPages(cursor -> userService.findAll(Optional.of(4), cursor));
+        Assertions.assertEquals(userService.findAll().toString(), users.toString(),
+                "Ошибка при постраничном получении списка юзеров.");
+    }
+
+    @Test
+    void findFriendsByPages() {
+        insertUsers();
+        jdbcTemplate.update("INSERT INTO LIST_OF_FRIENDS SELECT X, 1, 1 FROM SYSTEM_RANGE(2, 20)");
+        List<User> friends = collectPages(cursor -> userService.findFriends(1, Optional.of(6), cursor));
+        Assertions.assertEquals(userService.findFriends(1).toString(), friends.toString(),
+                "Ошибка при постраничном получении друзей юзера.");
+        Assertions.assertEquals(19, friends.size(), "Ошибка при постраничном получении друзей юзера.");
+    }
+
+    @Test
+    void findFeedByPages() {
+        insertUsers();
+        jdbcTemplate.update("INSERT INTO FEEDS (TIMESTAMP, USER_ID, ENTITY_ID, EVENT_TYPE_ID, OPERATION_ID) " +
+                "SELECT DATEADD(SECOND, MOD(X, 4), TIMESTAMP '2023-05-01 10:00:00.123456'), 1, X, 3, 2 " +
+                "FROM SYSTEM_RANGE(2, 20)");
+        List<Feed> feed = collectPages(cursor -> userService.findFeed(1, Optional.of(5), cursor));
+        Assertions.assertEquals(userService.findFeed(1).toString(), feed.toString(),
+                "Ошибка при постраничном получении ленты событий.");
+        Assertions.assertEquals(19, feed.size(), "Ошибка при постраничном получении ленты событий.");
+    }
+
+    private void insertUsers() {
+        jdbcTemplate.update("INSERT INTO USERS SELECT X, CONCAT('user', X), CONCAT('login', X), " +
+                "CONCAT('user', X, '@mail.ru'), '1990-01-01' FROM SYSTEM_RANGE(1, 20)");
+    }
+
+    private <T> List<T> collectPages(Function<Optional<String>, Page<T>> pages) {
+        List<T> items = new ArrayList<>();
+        Optional<String> cursor = Optional.empty();
+        do {
+            Page<T> page = pages.apply(cursor);
+            items.addAll(page.getItems());
+            cursor = Optional.ofNullable(page.getNext());
+        } while (cursor.isPresent());
+        return items;
+    }
+}